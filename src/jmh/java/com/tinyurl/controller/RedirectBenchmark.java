@@ -0,0 +1,112 @@
+package com.tinyurl.controller;
+
+import com.tinyurl.configuration.RedirectPolicy;
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.service.ClickTrackingService;
+import com.tinyurl.service.ShortUrlFilter;
+import com.tinyurl.service.UrlCacheService;
+import com.tinyurl.utils.Base62Encoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /{shortUrl} throughput through the DispatcherServlet, on an L1 cache hit (no I/O):
+ * <ul>
+ *     <li>legacy: the previous handler, ResponseEntity&lt;?&gt; with a Map body serialized by the message converters</li>
+ *     <li>json / permanent / temporary: TinyUrlController with redirect.mode set accordingly</li>
+ *     <li>revalidate: sends If-None-Match with the current ETag (a 304 in json mode, ignored by redirects)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RedirectBenchmark {
+
+    private static final String SHORT_URL = "1a2B3c";
+    private static final String LONG_URL = "https://www.example.com/articles/2024/05/some-fairly-typical-long-url?utm_source=newsletter";
+
+    @Param({"legacy", "json", "permanent", "temporary"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean revalidate;
+
+    private MockMvc mockMvc;
+    private RequestBuilder request;
+
+    @RestController
+    public static class LegacyController {
+        @GetMapping("/api/v1/tinyurl/{shortUrl}")
+        public ResponseEntity<?> get(@PathVariable("shortUrl") String shortUrl) {
+            return ResponseEntity.ok(Map.of("longUrl", LONG_URL));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("legacy".equals(mode)) {
+            mockMvc = MockMvcBuilders.standaloneSetup(new LegacyController()).build();
+        } else {
+            UrlCacheService urlCacheService = new UrlCacheService(null, null, null, null, null, null, null) {
+                @Override
+                public String get(String shortUrl) {
+                    return LONG_URL;
+                }
+            };
+            PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+            ClickTrackingService clickTrackingService = new ClickTrackingService(null, null, null, performanceMetrics);
+            clickTrackingService.registerMetrics();
+            ReflectionTestUtils.setField(clickTrackingService, "localAggregationEnabled", true);
+            ReflectionTestUtils.setField(clickTrackingService, "localMaxKeys", 100);
+            TinyUrlController controller = new TinyUrlController(new Base62Encoder(), null, null, urlCacheService, null,
+                    clickTrackingService, null, new ShortUrlFilter(new Base62Encoder(), null),
+                    new RedirectPolicy(RedirectPolicy.Mode.valueOf(mode.toUpperCase()), 86400),
+                    JsonMapper.builder().build(), performanceMetrics);
+            controller.initTimers();
+            mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        }
+
+        String etag = mockMvc.perform(get("/api/v1/tinyurl/{shortUrl}", SHORT_URL)).andReturn()
+                .getResponse().getHeader("ETag");
+        request = revalidate && etag != null
+                ? get("/api/v1/tinyurl/{shortUrl}", SHORT_URL).header("If-None-Match", etag)
+                : get("/api/v1/tinyurl/{shortUrl}", SHORT_URL);
+    }
+
+    @Benchmark
+    public int resolve() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        return response.getStatus() + response.getContentLength();
+    }
+}
@@ -0,0 +1,156 @@
+package com.tinyurl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of timing one call, 8 threads timing the same operation:
+ * <ul>
+ *     <li>baseline: the call without timing</li>
+ *     <li>legacyAspect: the previous TimedOperationAspect (Timer.Sample + computeIfAbsent per call,
+ *     Micrometer Timer with client-side percentiles)</li>
+ *     <li>aspect / aspectHdr: the current aspect with metrics.timers.mode=micrometer / hdr</li>
+ *     <li>micrometerTimer / hdrTimer / hdrTimerSampled: pre-resolved {@link OperationTimer} start/stop,
+ *     hdrTimerSampled records 1 in 8 calls</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TimerOverheadBenchmark {
+
+    public static class Target {
+        @TimedOperation("target")
+        public long work(long value) {
+            return value * 31 + 7;
+        }
+    }
+
+    /**
+     * TimedOperationAspect before pre-resolved timers.
+     */
+    @Aspect
+    public static class LegacyTimedOperationAspect {
+        private final MeterRegistry meterRegistry;
+        private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+        public LegacyTimedOperationAspect(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Around("@annotation(timedOperation)")
+        public Object timedOperation(ProceedingJoinPoint joinPoint, TimedOperation timedOperation) throws Throwable {
+            String operationName = timedOperation.value();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return joinPoint.proceed();
+            } finally {
+                sample.stop(timers.computeIfAbsent(operationName, name ->
+                        Timer.builder("tinyurl." + name)
+                                .publishPercentiles(0.5, 0.75, 0.95, 0.99)
+                                .register(meterRegistry)));
+            }
+        }
+    }
+
+    private final Target target = new Target();
+    private Target legacyAspect;
+    private Target aspect;
+    private Target aspectHdr;
+    private OperationTimer micrometerTimer;
+    private OperationTimer hdrTimer;
+    private OperationTimer hdrTimerSampled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacyAspect = proxy(new LegacyTimedOperationAspect(new SimpleMeterRegistry()));
+
+        PerformanceMetrics micrometer = new PerformanceMetrics(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(micrometer, "timerMode", "micrometer");
+        aspect = proxy(new TimedOperationAspect(micrometer));
+        micrometerTimer = micrometer.timer("handle");
+
+        PerformanceMetrics hdr = new PerformanceMetrics(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(hdr, "timerMode", "hdr");
+        ReflectionTestUtils.setField(hdr, "sampleEvery", "sampled:8");
+        aspectHdr = proxy(new TimedOperationAspect(hdr));
+        hdrTimer = hdr.timer("handle");
+        hdrTimerSampled = hdr.timer("sampled");
+    }
+
+    private Target proxy(Object timingAspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(timingAspect);
+        return factory.getProxy();
+    }
+
+    @Benchmark
+    public long baseline() {
+        return target.work(System.nanoTime());
+    }
+
+    @Benchmark
+    public long legacyAspect() {
+        return legacyAspect.work(System.nanoTime());
+    }
+
+    @Benchmark
+    public long aspect() {
+        return aspect.work(System.nanoTime());
+    }
+
+    @Benchmark
+    public long aspectHdr() {
+        return aspectHdr.work(System.nanoTime());
+    }
+
+    @Benchmark
+    public long micrometerTimer() {
+        return timed(micrometerTimer);
+    }
+
+    @Benchmark
+    public long hdrTimer() {
+        return timed(hdrTimer);
+    }
+
+    @Benchmark
+    public long hdrTimerSampled() {
+        return timed(hdrTimerSampled);
+    }
+
+    private long timed(OperationTimer timer) {
+        long start = timer.start();
+        try {
+            return target.work(System.nanoTime());
+        } finally {
+            timer.stop(start);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embedded H2 database in MySQL mode for repository benchmarks, pooled like the application (Hikari, 10 connections).
+ */
+public final class BenchmarkDatabase {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static HikariDataSource create(String name) {
+        return create(name, "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * File backed database under build/jmh-db, for row counts that don't fit in the heap. Starts empty.
+     */
+    public static HikariDataSource createOnDisk(String name) {
+        File directory = new File("build/jmh-db");
+        File[] previous = directory.listFiles((dir, file) -> file.startsWith(name + "."));
+        if (previous != null) {
+            for (File file : previous) {
+                file.delete();
+            }
+        }
+        return create(name, "jdbc:h2:file:" + directory.getAbsolutePath() + "/" + name + ";MODE=MySQL");
+    }
+
+    private static HikariDataSource create(String name, String jdbcUrl) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl(jdbcUrl);
+        config.setMaximumPoolSize(10);
+        config.setPoolName(name);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        new JdbcTemplate(dataSource).execute("""
+                CREATE TABLE IF NOT EXISTS tiny_urls
+                (
+                    short_url     VARCHAR(12) PRIMARY KEY,
+                    long_url      VARCHAR(2048) NOT NULL,
+                    long_url_hash BIGINT        NULL,
+                    click_count   INT           NOT NULL DEFAULT 0,
+                    created_at    TIMESTAMP(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+                )
+                """);
+        new JdbcTemplate(dataSource).execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_long_url_hash ON tiny_urls (long_url_hash, long_url)");
+        return dataSource;
+    }
+
+    /**
+     * Inserts {@code rows} mappings and returns their short codes (index i holds the code of row i).
+     */
+    public static String[] populate(JdbcTemplate jdbcTemplate, int rows) {
+        Base62Encoder base62Encoder = new Base62Encoder();
+        LongUrlHasher longUrlHasher = new LongUrlHasher();
+        String[] shortUrls = new String[rows];
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            shortUrls[i] = base62Encoder.encode(1_000_000_000L + i);
+            String longUrl = longUrl(i);
+            batch.add(new Object[]{shortUrls[i], longUrl, longUrlHasher.hash(longUrl)});
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO tiny_urls (short_url, long_url, long_url_hash) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        return shortUrls;
+    }
+
+    public static String longUrl(int i) {
+        return "https://www.example.com/articles/" + i + "/some-reasonably-long-path?utm_source=benchmark";
+    }
+}
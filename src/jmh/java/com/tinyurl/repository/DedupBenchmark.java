@@ -0,0 +1,122 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long url dedup lookup and insert latency: long_url_hash index vs a unique index on long_url.
+ * H2 has no prefix indexes, so the string index covers the whole column - the closest equivalent of
+ * idx_long_url (long_url(255)). The tables live on disk under build/jmh-db; populating 10M rows takes minutes.
+ * Use -p rows=1000000 for a quick run.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"10000000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private UrlRepository urlRepository;
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.createOnDisk("dedup");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        urlRepository = new UrlRepository(ShardRouter.single(jdbcTemplate), new LongUrlHasher(), new Base62Encoder());
+        BenchmarkDatabase.populate(jdbcTemplate, rows);
+
+        jdbcTemplate.execute("""
+                CREATE TABLE tiny_urls_string_index
+                (
+                    short_url VARCHAR(12) PRIMARY KEY,
+                    long_url  VARCHAR(2048) NOT NULL,
+                    UNIQUE INDEX idx_long_url (long_url)
+                )
+                """);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{base62Encoder.encode(1_000_000_000L + i), BenchmarkDatabase.longUrl(i)});
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO tiny_urls_string_index (short_url, long_url) VALUES (?, ?)", batch);
+                batch.clear();
+            }
+        }
+        nextId = 2_000_000_000L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public String dedupHitByHash() {
+        return urlRepository.findShortUrlByLongUrl(existingLongUrl());
+    }
+
+    @Benchmark
+    public String dedupMissByHash() {
+        return urlRepository.findShortUrlByLongUrl(newLongUrl());
+    }
+
+    @Benchmark
+    public List<String> dedupHitByStringIndex() {
+        return jdbcTemplate.queryForList("SELECT short_url FROM tiny_urls_string_index WHERE long_url = ?",
+                String.class, existingLongUrl());
+    }
+
+    @Benchmark
+    public List<String> dedupMissByStringIndex() {
+        return jdbcTemplate.queryForList("SELECT short_url FROM tiny_urls_string_index WHERE long_url = ?",
+                String.class, newLongUrl());
+    }
+
+    @Benchmark
+    public boolean insertWithHash() {
+        return urlRepository.save(base62Encoder.encode(nextId++), newLongUrl());
+    }
+
+    @Benchmark
+    public int insertWithStringIndex() {
+        return jdbcTemplate.update("INSERT IGNORE INTO tiny_urls_string_index (short_url, long_url) VALUES (?, ?)",
+                base62Encoder.encode(nextId++), newLongUrl());
+    }
+
+    private String existingLongUrl() {
+        return BenchmarkDatabase.longUrl(ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    private String newLongUrl() {
+        return "https://www.example.org/new/" + ThreadLocalRandom.current().nextLong() + "/path";
+    }
+}
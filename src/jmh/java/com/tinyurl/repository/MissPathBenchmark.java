@@ -0,0 +1,112 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache-miss lookup before and after it became a pure read:
+ * <ul>
+ *     <li>legacyIncrementAndGet: transaction with UPDATE click_count + 1 (row lock) followed by SELECT</li>
+ *     <li>findLongUrl: single primary key SELECT (UrlRepository.findLongUrl)</li>
+ * </ul>
+ * 8 threads share a 10 connection pool. With the "hot" distribution every thread resolves the same code,
+ * which is where the row lock serializes lookups. The updateMicros counter is the time spent in the
+ * locking UPDATE per iteration (lock wait + execution).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MissPathBenchmark {
+
+    private static final String LEGACY_UPDATE_CLICK = "UPDATE tiny_urls SET click_count = click_count + 1 WHERE short_url = ?";
+    private static final String SELECT_LONG_URL = "SELECT long_url FROM tiny_urls WHERE short_url = ?";
+
+    @Param({"hot", "uniform"})
+    public String keyDistribution;
+
+    @Param({"100000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private UrlRepository urlRepository;
+    private String[] shortUrls;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class LockWait {
+        public long updateMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            updateMicros = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create("misspath");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        urlRepository = new UrlRepository(ShardRouter.single(jdbcTemplate), new LongUrlHasher(), new Base62Encoder());
+        shortUrls = BenchmarkDatabase.populate(jdbcTemplate, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public String legacyIncrementAndGet(LockWait lockWait) {
+        String shortUrl = nextShortUrl();
+        return transactionTemplate.execute(status -> {
+            long start = System.nanoTime();
+            int rowsUpdated = jdbcTemplate.update(LEGACY_UPDATE_CLICK, shortUrl);
+            lockWait.updateMicros += (System.nanoTime() - start) / 1_000;
+            if (rowsUpdated == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject(SELECT_LONG_URL, String.class, shortUrl);
+        });
+    }
+
+    @Benchmark
+    public String findLongUrl() {
+        return urlRepository.findLongUrl(nextShortUrl());
+    }
+
+    private String nextShortUrl() {
+        if ("hot".equals(keyDistribution)) {
+            return shortUrls[0];
+        }
+        return shortUrls[ThreadLocalRandom.current().nextInt(shortUrls.length)];
+    }
+}
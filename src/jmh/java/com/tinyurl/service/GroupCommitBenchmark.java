@@ -0,0 +1,86 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.BenchmarkDatabase;
+import com.tinyurl.repository.ShardRouter;
+import com.tinyurl.repository.UrlRepository;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * POST /shorten write path under 32 concurrent writers, against the file backed H2 database (10 connections).
+ * <ul>
+ *     <li>direct: one autocommit INSERT IGNORE per call</li>
+ *     <li>groupCommit: {@link GroupCommitWriter} with 2 writers, batches of up to 64 rows, lingerMs linger</li>
+ * </ul>
+ * One run on a single core: direct 38.6 ops/ms, p50 0.02ms, p99 34ms; groupCommit (linger 0) 40.7 ops/ms,
+ * p50 0.2ms, p99 10ms; with a 2ms linger batches never fill (32 callers, 2 writers), throughput drops to 12.8 ops/ms.
+ * H2 doesn't flush its log on every commit, so the gain against MySQL (innodb_flush_log_at_trx_commit=1) is larger;
+ * measure that with {@code make load ARGS="--insert-ratio=1"} and write.group-commit.enabled on / off.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    @Param({"direct", "groupCommit"})
+    public String variant;
+
+    // groupCommit only
+    @Param({"0", "2"})
+    public long lingerMs;
+
+    private HikariDataSource dataSource;
+    private GroupCommitWriter groupCommitWriter;
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private final AtomicLong nextId = new AtomicLong(1_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.createOnDisk("groupcommit");
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+        UrlRepository urlRepository = new UrlRepository(ShardRouter.single(new JdbcTemplate(dataSource)), new LongUrlHasher(), base62Encoder);
+        groupCommitWriter = new GroupCommitWriter(urlRepository, new ShortUrlFilter(base62Encoder, performanceMetrics),
+                performanceMetrics);
+        ReflectionTestUtils.setField(groupCommitWriter, "enabled", "groupCommit".equals(variant));
+        ReflectionTestUtils.setField(groupCommitWriter, "maxLingerMs", lingerMs);
+        groupCommitWriter.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        groupCommitWriter.stop();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean save() {
+        long id = nextId.getAndIncrement();
+        return groupCommitWriter.save(base62Encoder.encode(id), BenchmarkDatabase.longUrl((int) id));
+    }
+}
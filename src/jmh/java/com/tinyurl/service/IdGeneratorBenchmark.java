@@ -0,0 +1,127 @@
+package com.tinyurl.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tinyurl.metrics.PerformanceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+
+/**
+ * Embedded Snowflake generator vs the HTTP-backed KeyFetchingService (with and without id leasing).
+ * The remote generator is stood in by a JDK HttpServer on the loopback interface,
+ * so the remote numbers are a lower bound of a real network hop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    private HttpServer server;
+    private KeyFetchingService remote;
+    private KeyFetchingService leased;
+    private EmbeddedSnowflakeGenerator embedded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // ids carry the current time like real Snowflake ids, as leased ids are checked for their age
+        AtomicLong sequence = new AtomicLong(
+                (System.currentTimeMillis() - SNOWFLAKE_EPOCH_MS) << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/snowflake/next", exchange ->
+                respond(exchange, toJson(sequence.incrementAndGet())));
+        server.createContext("/api/v1/snowflake/batch", exchange -> {
+            int count = Integer.parseInt(exchange.getRequestURI().getQuery().substring("count=".length()));
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < count; i++) {
+                body.append(i > 0 ? "," : "").append(toJson(sequence.incrementAndGet()));
+            }
+            respond(exchange, body.append(']').toString());
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        remote = keyFetchingService(baseUrl, false);
+        leased = keyFetchingService(baseUrl, true);
+        embedded = new EmbeddedSnowflakeGenerator(1, "benchmark", 1000, System::currentTimeMillis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public long remoteGetNextId() {
+        return remote.getNextId().getId();
+    }
+
+    @Benchmark
+    public long remoteLeasedGetNextId() {
+        return leased.getNextId().getId();
+    }
+
+    @Benchmark
+    public long embeddedGetNextId() {
+        return embedded.getNextId().getId();
+    }
+
+    @Benchmark
+    public long embeddedNextId() {
+        return embedded.nextId();
+    }
+
+    private static KeyFetchingService keyFetchingService(String baseUrl, boolean leaseEnabled) {
+        KeyFetchingService service = new KeyFetchingService(
+                WebClient.builder(), new PerformanceMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "baseUrl", baseUrl);
+        ReflectionTestUtils.setField(service, "timeoutMs", 5000);
+        ReflectionTestUtils.setField(service, "leaseEnabled", leaseEnabled);
+        ReflectionTestUtils.setField(service, "leaseBatchSize", 1000);
+        ReflectionTestUtils.setField(service, "leaseLowWaterMark", 250);
+        ReflectionTestUtils.setField(service, "leaseMaxAgeMs", 300_000L);
+        service.initWebClient();
+        return service;
+    }
+
+    private static String toJson(long id) {
+        return "{\"id\":" + id + ",\"nodeId\":1,\"host\":\"benchmark\"}";
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.tinyurl.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process RESP2 server on a loopback port, so cache benchmarks go through the real Lettuce client
+ * (encoding, event loop, socket round trip) without an external Redis.
+ * <ul>
+ *     <li>Supports GET, SET, GETEX, PEXPIRE, MGET, INCR, EVAL (treated as the GET + PEXPIRE script) and PING</li>
+ *     <li>TTLs are accepted and ignored, EVALSHA answers NOSCRIPT until the script was sent with EVAL</li>
+ *     <li>HELLO is rejected so the client negotiates RESP2, other commands (CLIENT SETINFO, ...) answer OK</li>
+ * </ul>
+ */
+public class StandInRedisServer implements AutoCloseable {
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Set<String> scripts = ConcurrentHashMap.newKeySet();
+    private final ServerSocket serverSocket;
+
+    public StandInRedisServer() throws IOException {
+        serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread.ofPlatform().daemon().name("stand-in-redis").start(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void put(String key, String value) {
+        values.put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                // one thread per connection, the client multiplexes everything over one or two
+                Thread.ofPlatform().daemon().start(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            List<byte[]> command;
+            while ((command = readCommand(in)) != null) {
+                execute(command, out);
+                // pipelined commands are answered together
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // client disconnected
+        }
+    }
+
+    private void execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "GET", "GETEX" -> bulk(out, values.get(key(command, 1)));
+            case "SET" -> {
+                values.put(key(command, 1), command.get(2));
+                simple(out, "+OK");
+            }
+            case "PEXPIRE" -> simple(out, values.containsKey(key(command, 1)) ? ":1" : ":0");
+            case "MGET" -> {
+                simple(out, "*" + (command.size() - 1));
+                for (int i = 1; i < command.size(); i++) {
+                    bulk(out, values.get(key(command, i)));
+                }
+            }
+            case "INCR" -> {
+                byte[] updated = values.compute(key(command, 1), (key, value) -> String.valueOf(
+                        (value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.US_ASCII))) + 1)
+                        .getBytes(StandardCharsets.US_ASCII));
+                simple(out, ":" + new String(updated, StandardCharsets.US_ASCII));
+            }
+            // EVAL script numkeys key ...
+            case "EVAL" -> {
+                scripts.add(sha1(command.get(1)));
+                bulk(out, values.get(key(command, 3)));
+            }
+            case "EVALSHA" -> {
+                if (scripts.contains(key(command, 1))) {
+                    bulk(out, values.get(key(command, 3)));
+                } else {
+                    simple(out, "-NOSCRIPT No matching script");
+                }
+            }
+            case "PING" -> simple(out, "+PONG");
+            case "HELLO" -> simple(out, "-ERR unknown command 'HELLO'");
+            default -> simple(out, "+OK");
+        }
+    }
+
+    private static String key(List<byte[]> command, int index) {
+        return new String(command.get(index), StandardCharsets.UTF_8);
+    }
+
+    private static String sha1(byte[] script) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(script));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        if (header.charAt(0) != '*') {
+            throw new IOException("Inline commands are not supported");
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<byte[]> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            command.add(in.readNBytes(length));
+            in.skipNBytes(2);
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                return null;
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static void simple(OutputStream out, String reply) throws IOException {
+        out.write(reply.getBytes(StandardCharsets.US_ASCII));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static void bulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            simple(out, "$-1");
+            return;
+        }
+        simple(out, "$" + value.length);
+        out.write(value);
+        out.write('\r');
+        out.write('\n');
+    }
+}
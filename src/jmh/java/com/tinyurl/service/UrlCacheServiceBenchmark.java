@@ -0,0 +1,115 @@
+package com.tinyurl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.configuration.TtlRefreshPolicy;
+import com.tinyurl.metrics.PerformanceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.tinyurl.ApplicationConstants.CACHE_KEY_PREFIX;
+
+/**
+ * UrlCacheService get/put through Lettuce against a {@link StandInRedisServer} on the loopback interface.
+ * <ul>
+ *     <li>l1: the in-process cache holds every code, gets never reach Redis</li>
+ *     <li>getex / lua: no L1, every get is one round trip refreshing the TTL with GETEX or the Lua script</li>
+ *     <li>noRefresh: no L1, plain GET</li>
+ * </ul>
+ * The stand-in answers from a map without a network hop, so the round trip numbers are a lower bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UrlCacheServiceBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    @Param({"l1", "getex", "lua", "noRefresh"})
+    public String variant;
+
+    private StandInRedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private UrlCacheService urlCacheService;
+    private String[] shortUrls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        redisServer = new StandInRedisServer();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", redisServer.getPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        Cache<String, String> urlNearCache = "l1".equals(variant)
+                ? Caffeine.newBuilder().maximumSize(KEYS * 2).build()
+                : Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).build();
+        TtlRefreshPolicy ttlRefreshPolicy = switch (variant) {
+            case "lua" -> new TtlRefreshPolicy(TtlRefreshPolicy.Mode.LUA, 1.0);
+            case "noRefresh" -> new TtlRefreshPolicy(TtlRefreshPolicy.Mode.GETEX, 0.0);
+            default -> new TtlRefreshPolicy(TtlRefreshPolicy.Mode.GETEX, 1.0);
+        };
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+        // uniform keys, so nothing gets pinned: measures the sketch overhead only
+        HotKeyTracker hotKeyTracker = new HotKeyTracker(performanceMetrics);
+        hotKeyTracker.init();
+        urlCacheService = new UrlCacheService(redisTemplate, Duration.ofHours(24), urlNearCache,
+                performanceMetrics, ttlRefreshPolicy, hotKeyTracker, RedisLayout.keys());
+        urlCacheService.initTimers();
+
+        shortUrls = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            shortUrls[i] = "code" + i;
+            String longUrl = "https://www.example.com/articles/" + i + "?utm_source=benchmark";
+            redisServer.put(CACHE_KEY_PREFIX + shortUrls[i], longUrl);
+            urlNearCache.put(shortUrls[i], longUrl);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.close();
+    }
+
+    @Benchmark
+    public String get() {
+        return urlCacheService.get(nextShortUrl());
+    }
+
+    @Benchmark
+    public void put() {
+        String shortUrl = nextShortUrl();
+        urlCacheService.put(shortUrl, "https://www.example.com/" + shortUrl);
+    }
+
+    private String nextShortUrl() {
+        return shortUrls[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+}
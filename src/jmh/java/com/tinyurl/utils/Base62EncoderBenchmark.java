@@ -0,0 +1,78 @@
+package com.tinyurl.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.tinyurl.ApplicationConstants.BASE;
+import static com.tinyurl.ApplicationConstants.BASE62_ALPHABET;
+
+/**
+ * Table-driven Base62Encoder vs the previous StringBuilder based implementation.
+ * Run with -prof gc to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Base62EncoderBenchmark {
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private final byte[] buffer = new byte[Base62Encoder.MAX_LENGTH];
+
+    private long id = 653436189499457547L;
+    private final String shortUrl = "mGkAYBHPwp";
+
+    @Benchmark
+    public String legacyEncode() {
+        return legacyEncode(id++);
+    }
+
+    @Benchmark
+    public String encode() {
+        return base62Encoder.encode(id++);
+    }
+
+    @Benchmark
+    public String encodeFixedWidth() {
+        return base62Encoder.encode(id++, Base62Encoder.MAX_LENGTH);
+    }
+
+    @Benchmark
+    public int encodeTo() {
+        return base62Encoder.encodeTo(id++, 0, buffer, 0);
+    }
+
+    @Benchmark
+    public long decode() {
+        return base62Encoder.decode(shortUrl);
+    }
+
+    /**
+     * The implementation Base62Encoder.encode had before it became table driven.
+     */
+    private static String legacyEncode(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must be non-negative.");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        while (value > 0) {
+            int remainder = (int) (value % BASE);
+            sb.append(BASE62_ALPHABET.charAt(remainder));
+            value /= BASE;
+        }
+
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.tinyurl.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for a running instance, replacing the wrk scripts in load_test/.
+ * <ul>
+ *     <li>Open loop: requests are sent when they are due (fixed rate or recorded timing),
+ *     each on its own virtual thread, whether or not earlier ones have completed</li>
+ *     <li>Latency is measured from when a request was due, see {@link LoadTestResults}</li>
+ *     <li>Workloads: a generated insert/lookup mix ({@link MixedWorkload}) or a replay ({@link ReplayWorkload})</li>
+ * </ul>
+ * Run with {@code ./gradlew loadTest -PloadArgs="--rate=5000 --duration=60"}, options in {@link LoadTestOptions}.
+ */
+public class LoadTest {
+
+    static final String SHORTEN_PATH = "/api/v1/tinyurl/shorten";
+    static final String LOOKUP_PATH = "/api/v1/tinyurl/";
+
+    private static final int PRELOAD_CONCURRENCY = 64;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final HttpClient client;
+
+    public LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        JsonNode summary = new LoadTest(options).run();
+        System.out.println(summary.toPrettyString());
+        System.out.println("Report written to " + options.output().toAbsolutePath());
+    }
+
+    public JsonNode run() throws Exception {
+        LoadTestResults results = new LoadTestResults(options.output());
+        Workload workload = options.replay() != null
+                ? new ReplayWorkload(options, objectMapper)
+                : new MixedWorkload(options, shortUrls(), readLines(options.longUrls()));
+
+        long endNanos = (options.warmupSeconds() + options.durationSeconds()) * 1_000_000_000L;
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmupSeconds() * 1_000_000_000L;
+        AtomicLong lastDone = new AtomicLong(measureFrom);
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+
+        System.out.printf("Running for %ds (+%ds warmup) at %.0f requests/s against %s%n",
+                options.durationSeconds(), options.warmupSeconds(), options.rate(), options.baseUrl());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(results::logInterval, 1, 1, TimeUnit.SECONDS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Operation operation;
+            while ((operation = workload.next()) != null && operation.offsetNanos() < endNanos) {
+                long due = start + operation.offsetNanos();
+                waitUntil(due);
+                // if the service is saturated this blocks, the wait still counts towards the response time
+                inFlight.acquire();
+                Operation request = operation;
+                executor.execute(() -> {
+                    try {
+                        long sent = System.nanoTime();
+                        int status = send(request);
+                        long done = System.nanoTime();
+                        if (due >= measureFrom) {
+                            results.record(request.name(), due, sent, done, status);
+                            lastDone.accumulateAndGet(done, Math::max);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            reporter.shutdownNow();
+            if (workload instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+
+        double measuredSeconds = Math.max(lastDone.get() - measureFrom, 1) / 1e9;
+        return results.report(options.output(), objectMapper, options, measuredSeconds);
+    }
+
+    /**
+     * @return the HTTP status, or -1 if there was no response
+     */
+    private int send(Operation operation) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.baseUrl() + operation.path()))
+                .timeout(REQUEST_TIMEOUT);
+        if (operation.body() != null) {
+            request.header("Content-Type", "application/json")
+                    .method(operation.method(), HttpRequest.BodyPublishers.ofString(operation.body()));
+        } else {
+            request.method(operation.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Codes to look up: read from --short-urls, or created by shortening --preload urls (not measured).
+     */
+    private List<String> shortUrls() throws Exception {
+        if (options.shortUrls() != null) {
+            return readLines(options.shortUrls());
+        }
+        if (options.preload() == 0) {
+            return List.of();
+        }
+
+        List<String> longUrls = readLines(options.longUrls());
+        if (longUrls.isEmpty()) {
+            throw new IllegalArgumentException("No long urls to preload, check --long-urls");
+        }
+        System.out.printf("Preloading %d urls%n", options.preload());
+        List<String> shortUrls = Collections.synchronizedList(new ArrayList<>(options.preload()));
+        Semaphore concurrency = new Semaphore(PRELOAD_CONCURRENCY);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.preload(); i++) {
+                String body = objectMapper.writeValueAsString(
+                        Map.of("longUrl", toUrl(longUrls.get(i % longUrls.size()))));
+                concurrency.acquire();
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                                        URI.create(options.baseUrl() + SHORTEN_PATH))
+                                .timeout(REQUEST_TIMEOUT)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build(), HttpResponse.BodyHandlers.ofString());
+                        JsonNode shortUrl = objectMapper.readTree(response.body()).get("shortUrl");
+                        if (response.statusCode() / 100 == 2 && shortUrl != null) {
+                            shortUrls.add(shortUrl.asString());
+                        }
+                    } catch (Exception e) {
+                        // counted below
+                    } finally {
+                        concurrency.release();
+                    }
+                });
+            }
+        }
+        if (shortUrls.size() < options.preload()) {
+            System.out.printf("Preloaded %d of %d urls%n", shortUrls.size(), options.preload());
+        }
+        return shortUrls;
+    }
+
+    static String toUrl(String line) {
+        return line.contains("://") ? line : "https://www." + line;
+    }
+
+    private static List<String> readLines(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.map(String::strip).filter(line -> !line.isEmpty()).toList();
+        }
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
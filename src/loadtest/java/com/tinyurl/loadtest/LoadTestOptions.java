@@ -0,0 +1,85 @@
+package com.tinyurl.loadtest;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options, all given as --name=value:
+ * <ul>
+ *     <li>base-url: the running service (default http://localhost:8080)</li>
+ *     <li>rate: intended requests per second, independent of how fast the service answers (default 1000)</li>
+ *     <li>duration / warmup: measured seconds, and seconds run before them and discarded (default 60 / 10)</li>
+ *     <li>insert-ratio: fraction of POST /shorten among the generated requests (default 0.1)</li>
+ *     <li>distribution: how lookups pick a code, zipf or uniform (default zipf), zipf-exponent (default 1.0)</li>
+ *     <li>preload: urls shortened before the run to have codes to look up (default 10000),
+ *     short-urls: a file with one existing code per line, used instead</li>
+ *     <li>long-urls: file with one url or domain per line for inserts (default load_test/domains.txt)</li>
+ *     <li>replay: a JSONL file of recorded requests, replayed instead of the generated mix
+ *     (see {@link ReplayWorkload}), speed: replay time scale (default 1.0)</li>
+ *     <li>max-in-flight: most outstanding requests (default 10000)</li>
+ *     <li>output: report directory (default build/loadtest/&lt;timestamp&gt;), seed: random seed (default 42)</li>
+ * </ul>
+ */
+public record LoadTestOptions(String baseUrl, double rate, int durationSeconds, int warmupSeconds,
+                              double insertRatio, String distribution, double zipfExponent, int preload,
+                              Path shortUrls, Path longUrls, Path replay, double speed, int maxInFlight,
+                              Path output, long seed) {
+
+    private static final Set<String> NAMES = Set.of("base-url", "rate", "duration", "warmup", "insert-ratio",
+            "distribution", "zipf-exponent", "preload", "short-urls", "long-urls", "replay", "speed",
+            "max-in-flight", "output", "seed");
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "', expected --name=value with name in " + NAMES);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                Double.parseDouble(values.getOrDefault("rate", "1000")),
+                Integer.parseInt(values.getOrDefault("duration", "60")),
+                Integer.parseInt(values.getOrDefault("warmup", "10")),
+                Double.parseDouble(values.getOrDefault("insert-ratio", "0.1")),
+                values.getOrDefault("distribution", "zipf"),
+                Double.parseDouble(values.getOrDefault("zipf-exponent", "1.0")),
+                Integer.parseInt(values.getOrDefault("preload", "10000")),
+                path(values.get("short-urls")),
+                Path.of(values.getOrDefault("long-urls", "load_test/domains.txt")),
+                path(values.get("replay")),
+                Double.parseDouble(values.getOrDefault("speed", "1.0")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                Path.of(values.getOrDefault("output", "build/loadtest/"
+                        + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")))),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (rate <= 0 || speed <= 0) {
+            throw new IllegalArgumentException("rate and speed must be positive");
+        }
+        if (insertRatio < 0 || insertRatio > 1) {
+            throw new IllegalArgumentException("insert-ratio must be between 0 and 1");
+        }
+        if (!distribution.equals("zipf") && !distribution.equals("uniform")) {
+            throw new IllegalArgumentException("distribution must be zipf or uniform");
+        }
+        if (durationSeconds <= 0 || warmupSeconds < 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("duration and max-in-flight must be positive, warmup not negative");
+        }
+    }
+
+    private static Path path(String value) {
+        return value == null ? null : Path.of(value);
+    }
+}
@@ -0,0 +1,138 @@
+package com.tinyurl.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies per operation name, in microseconds:
+ * <ul>
+ *     <li>response time: from when the request was due to when the response arrived. Includes any time spent
+ *     waiting behind slow requests, so a stall shows up in every request it delayed (no coordinated omission)</li>
+ *     <li>service time: from when the request was sent to when the response arrived, what a closed-loop tool reports</li>
+ * </ul>
+ * Recorded into HdrHistogram {@link Recorder}s; every interval is appended to histograms.hlog,
+ * and the totals are written as .hgrm percentile distributions and summary.json.
+ */
+public class LoadTestResults {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+    private final HistogramLogWriter logWriter;
+    private final PrintStream logStream;
+    private final long startMillis = System.currentTimeMillis();
+
+    private static class Series {
+        final Recorder responseTime = new Recorder(3);
+        final Recorder serviceTime = new Recorder(3);
+        final Histogram responseTotal = new Histogram(3);
+        final Histogram serviceTotal = new Histogram(3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        Histogram responseInterval;
+        Histogram serviceInterval;
+    }
+
+    public LoadTestResults(Path output) throws IOException {
+        Files.createDirectories(output);
+        logStream = new PrintStream(Files.newOutputStream(output.resolve("histograms.hlog")), false);
+        logWriter = new HistogramLogWriter(logStream);
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(startMillis);
+        logWriter.setBaseTime(startMillis);
+        logWriter.outputLegend();
+    }
+
+    /**
+     * @param status HTTP status, or -1 if the request failed without a response
+     */
+    public void record(String name, long dueNanos, long sentNanos, long doneNanos, int status) {
+        Series s = series.computeIfAbsent(name, key -> new Series());
+        s.responseTime.recordValue(Math.max(0, (doneNanos - dueNanos) / 1_000));
+        s.serviceTime.recordValue(Math.max(0, (doneNanos - sentNanos) / 1_000));
+        s.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Moves what was recorded since the last call into the totals and appends it to the interval log.
+     */
+    public synchronized void logInterval() {
+        series.forEach((name, s) -> {
+            s.responseInterval = s.responseTime.getIntervalHistogram(s.responseInterval);
+            s.serviceInterval = s.serviceTime.getIntervalHistogram(s.serviceInterval);
+            s.responseTotal.add(s.responseInterval);
+            s.serviceTotal.add(s.serviceInterval);
+            s.responseInterval.setTag(name + ".response");
+            s.serviceInterval.setTag(name + ".service");
+            logWriter.outputIntervalHistogram(s.responseInterval);
+            logWriter.outputIntervalHistogram(s.serviceInterval);
+        });
+        logStream.flush();
+    }
+
+    /**
+     * Writes the report files and prints the summary.
+     *
+     * @param measuredSeconds wall time of the measured part of the run
+     */
+    public synchronized ObjectNode report(Path output, ObjectMapper objectMapper, LoadTestOptions options,
+                                          double measuredSeconds) throws IOException {
+        logInterval();
+        logStream.close();
+
+        ObjectNode summary = objectMapper.createObjectNode();
+        summary.put("baseUrl", options.baseUrl());
+        summary.put("intendedRate", options.rate());
+        summary.put("measuredSeconds", measuredSeconds);
+        long total = 0;
+        ObjectNode operations = summary.putObject("operations");
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            String name = entry.getKey();
+            Series s = entry.getValue();
+            total += s.responseTotal.getTotalCount();
+
+            ObjectNode operation = operations.putObject(name);
+            operation.put("count", s.responseTotal.getTotalCount());
+            operation.put("rate", s.responseTotal.getTotalCount() / measuredSeconds);
+            ObjectNode statuses = operation.putObject("statuses");
+            new TreeMap<>(s.statuses).forEach((status, count) ->
+                    statuses.put(status < 0 ? "error" : String.valueOf(status), count.sum()));
+            percentiles(operation.putObject("responseTimeMs"), s.responseTotal);
+            percentiles(operation.putObject("serviceTimeMs"), s.serviceTotal);
+
+            writeDistribution(output.resolve(name + ".response.hgrm"), s.responseTotal);
+            writeDistribution(output.resolve(name + ".service.hgrm"), s.serviceTotal);
+        }
+        summary.put("achievedRate", total / measuredSeconds);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(output.resolve("summary.json").toFile(), summary);
+        return summary;
+    }
+
+    private static void percentiles(ObjectNode node, Histogram histogram) {
+        node.put("mean", histogram.getMean() / 1_000);
+        for (double percentile : PERCENTILES) {
+            node.put("p" + String.valueOf(percentile).replace(".0", ""),
+                    histogram.getValueAtPercentile(percentile) / 1_000.0);
+        }
+        node.put("max", histogram.getMaxValue() / 1_000.0);
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            // values are in microseconds, the distribution is printed in milliseconds
+            histogram.outputPercentileDistribution(out, 1_000.0);
+        }
+    }
+}
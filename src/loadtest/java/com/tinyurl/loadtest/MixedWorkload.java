@@ -0,0 +1,59 @@
+package com.tinyurl.loadtest;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generated traffic at a fixed rate: each request is an insert with probability insertRatio, otherwise a lookup.
+ * <ul>
+ *     <li>Lookups pick a code with a Zipf (hot head, long tail) or uniform distribution</li>
+ *     <li>Inserts cycle through the long urls, bare domains get an https://www. prefix</li>
+ *     <li>Requests are due every 1/rate seconds no matter how long earlier ones take (open loop)</li>
+ * </ul>
+ */
+public class MixedWorkload implements Workload {
+
+    private final List<String> shortUrls;
+    private final List<String> longUrls;
+    private final double insertRatio;
+    private final ZipfDistribution zipf;
+    private final SplittableRandom random;
+    private final double intervalNanos;
+    private final long endNanos;
+
+    private long index;
+    private int nextLongUrl;
+
+    public MixedWorkload(LoadTestOptions options, List<String> shortUrls, List<String> longUrls) {
+        if (shortUrls.isEmpty() && options.insertRatio() < 1) {
+            throw new IllegalArgumentException("No short urls to look up, preload some or pass --short-urls");
+        }
+        if (longUrls.isEmpty() && options.insertRatio() > 0) {
+            throw new IllegalArgumentException("No long urls to insert, check --long-urls");
+        }
+        this.shortUrls = shortUrls;
+        this.longUrls = longUrls;
+        this.insertRatio = options.insertRatio();
+        this.zipf = options.distribution().equals("zipf") && !shortUrls.isEmpty()
+                ? new ZipfDistribution(shortUrls.size(), options.zipfExponent())
+                : null;
+        this.random = new SplittableRandom(options.seed());
+        this.intervalNanos = 1e9 / options.rate();
+        this.endNanos = (options.warmupSeconds() + options.durationSeconds()) * 1_000_000_000L;
+    }
+
+    @Override
+    public Operation next() {
+        long offsetNanos = (long) (index++ * intervalNanos);
+        if (offsetNanos >= endNanos) {
+            return null;
+        }
+        if (random.nextDouble() < insertRatio) {
+            String longUrl = LoadTest.toUrl(longUrls.get(nextLongUrl++ % longUrls.size()));
+            return new Operation("insert", offsetNanos, "POST", LoadTest.SHORTEN_PATH,
+                    "{\"longUrl\":\"" + longUrl.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}");
+        }
+        int rank = zipf != null ? zipf.sample(random) : random.nextInt(shortUrls.size());
+        return new Operation("lookup", offsetNanos, "GET", LoadTest.LOOKUP_PATH + shortUrls.get(rank), null);
+    }
+}
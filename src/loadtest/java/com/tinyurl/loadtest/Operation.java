@@ -0,0 +1,11 @@
+package com.tinyurl.loadtest;
+
+/**
+ * One request to send.
+ *
+ * @param name         what the latency is recorded under, e.g. "lookup" or "insert"
+ * @param offsetNanos  when the request is due, relative to the start of the run
+ * @param body         JSON request body, null for GET
+ */
+public record Operation(String name, long offsetNanos, String method, String path, String body) {
+}
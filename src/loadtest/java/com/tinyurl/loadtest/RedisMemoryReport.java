@@ -0,0 +1,171 @@
+package com.tinyurl.loadtest;
+
+import com.tinyurl.configuration.RedisLayout;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+import static com.tinyurl.ApplicationConstants.BASE62_ALPHABET;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+import static com.tinyurl.ApplicationConstants.URL_BUCKET_KEY_PREFIX;
+
+/**
+ * Measures the Redis memory used per mapping (url) and per pending click count (clicks) in both layouts of
+ * {@link RedisLayout}, by writing N entries into an empty database and comparing INFO memory used_memory.
+ * <ul>
+ *     <li>Codes are Snowflake ids of one node issuing 4096 codes per millisecond, Base62 encoded like the service</li>
+ *     <li>keys: SET url:{code} PX ttl, INCRBY clicks:{code}; buckets: HSET ub:{bucket} with one PEXPIRE per bucket,
+ *     HINCRBY cb:{bucket}, N / entries-per-bucket buckets</li>
+ *     <li>The database (--db, default 15) must be empty and is flushed after every measurement. used_memory is server
+ *     wide, so run it against an otherwise idle Redis</li>
+ * </ul>
+ * Options (--name=value): host (localhost), port (6379), db (15), sizes (1000000,10000000), entries-per-bucket (100),
+ * url-length (80). Run with {@code ./gradlew redisMemoryReport -PreportArgs="--sizes=1000000"}.
+ */
+public class RedisMemoryReport {
+
+    private static final Set<String> NAMES = Set.of("host", "port", "db", "sizes", "entries-per-bucket", "url-length");
+    private static final int PIPELINE_SIZE = 10_000;
+    private static final long TTL_MILLIS = Duration.ofHours(24).toMillis();
+
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisCommands<String, String> sync;
+    private final RedisAsyncCommands<String, String> async;
+    private final int urlLength;
+
+    private RedisMemoryReport(StatefulRedisConnection<String, String> connection, int urlLength) {
+        this.connection = connection;
+        this.sync = connection.sync();
+        this.async = connection.async();
+        this.urlLength = urlLength;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !NAMES.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "', expected --name=value with name in " + NAMES);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        RedisURI uri = RedisURI.builder()
+                .withHost(options.getOrDefault("host", "localhost"))
+                .withPort(Integer.parseInt(options.getOrDefault("port", "6379")))
+                .withDatabase(Integer.parseInt(options.getOrDefault("db", "15")))
+                .withTimeout(Duration.ofMinutes(1))
+                .build();
+        int[] sizes = Arrays.stream(options.getOrDefault("sizes", "1000000,10000000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.strip()))
+                .toArray();
+        int entriesPerBucket = Integer.parseInt(options.getOrDefault("entries-per-bucket", "100"));
+
+        RedisClient client = RedisClient.create(uri);
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisMemoryReport report = new RedisMemoryReport(connection, Integer.parseInt(options.getOrDefault("url-length", "80")));
+            if (report.sync.dbsize() > 0) {
+                throw new IllegalStateException("Database " + uri.getDatabase() + " is not empty, pick another one with --db");
+            }
+            System.out.println("Redis " + report.info("server", "redis_version") + ", " + new TreeMap<>(report.sync.configGet("hash-max-*")));
+            System.out.printf("%-8s %-7s %11s %15s %11s %s%n", "layout", "entries", "count", "used bytes", "bytes/entry", "encoding");
+            for (int size : sizes) {
+                int buckets = Math.max(1, size / entriesPerBucket);
+                report.measure("keys", RedisLayout.keys(), 0, size);
+                report.measure("buckets", new RedisLayout(RedisLayout.Mode.BUCKETS, buckets, buckets), buckets, size);
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private void measure(String name, RedisLayout layout, int buckets, int size) {
+        long before = usedMemory();
+        write(size, layout.isBucketed()
+                ? (code, i) -> async.hset(layout.urlKey(code), code, longUrl(i))
+                : (code, i) -> async.set(layout.urlKey(code), longUrl(i), SetArgs.Builder.px(TTL_MILLIS)));
+        if (layout.isBucketed()) {
+            // the service sets a bucket's TTL once, when it creates it
+            write(buckets, (code, i) -> async.pexpire(URL_BUCKET_KEY_PREFIX + i, TTL_MILLIS));
+        }
+        print(name, "url", size, layout.urlKey(code(0)), usedMemory() - before);
+
+        before = usedMemory();
+        write(size, layout.isBucketed()
+                ? (code, i) -> async.hincrby(layout.clickKey(code), code, 1 + i % 50)
+                : (code, i) -> async.incrby(layout.clickKey(code), 1 + i % 50));
+        print(name, "clicks", size, layout.clickKey(code(0)), usedMemory() - before);
+    }
+
+    // count commands for codes 0..count-1, in pipelined batches
+    private void write(int count, BiFunction<String, Integer, RedisFuture<?>> command) {
+        connection.setAutoFlushCommands(false);
+        try {
+            List<RedisFuture<?>> batch = new ArrayList<>(PIPELINE_SIZE);
+            for (int i = 0; i < count; i++) {
+                batch.add(command.apply(code(i), i));
+                if (batch.size() == PIPELINE_SIZE || i == count - 1) {
+                    connection.flushCommands();
+                    LettuceFutures.awaitAll(Duration.ofMinutes(1), batch.toArray(new RedisFuture[0]));
+                    batch.clear();
+                }
+            }
+        } finally {
+            connection.setAutoFlushCommands(true);
+        }
+    }
+
+    private void print(String layout, String entries, int size, String sampleKey, long usedBytes) {
+        System.out.printf("%-8s %-7s %11d %15d %11.1f %s%n", layout, entries, size, usedBytes,
+                (double) usedBytes / size, sync.objectEncoding(sampleKey));
+        sync.flushdb();
+    }
+
+    private long usedMemory() {
+        return Long.parseLong(info("memory", "used_memory"));
+    }
+
+    private String info(String section, String field) {
+        for (String line : sync.info(section).split("\r?\n")) {
+            if (line.startsWith(field + ":")) {
+                return line.substring(field.length() + 1).strip();
+            }
+        }
+        throw new IllegalStateException("INFO " + section + " has no " + field);
+    }
+
+    // i-th code issued by one node at 4096 codes per millisecond, from a 2025 timestamp
+    private static String code(int i) {
+        long millis = 126_230_400_000L + i / 4096;
+        long id = (millis << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS)) | (1L << SNOWFLAKE_SEQUENCE_BITS) | (i % 4096);
+        StringBuilder code = new StringBuilder();
+        do {
+            code.append(BASE62_ALPHABET.charAt((int) (id % BASE62_ALPHABET.length())));
+            id /= BASE62_ALPHABET.length();
+        } while (id > 0);
+        return code.reverse().toString();
+    }
+
+    private String longUrl(int i) {
+        StringBuilder url = new StringBuilder("https://www.example.com/articles/").append(i).append('/');
+        while (url.length() < urlLength) {
+            url.append('x');
+        }
+        return url.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.tinyurl.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replays recorded requests from a JSONL file, one request per line:
+ * <pre>
+ * {"at": 0, "method": "POST", "path": "/api/v1/tinyurl/shorten", "body": {"longUrl": "https://a.com"}}
+ * {"at": 12, "method": "GET", "path": "/api/v1/tinyurl/1a2B3c"}
+ * </pre>
+ * <ul>
+ *     <li>at: milliseconds since the start of the recording, divided by the speed.
+ *     Lines without it are due every 1/rate seconds</li>
+ *     <li>body: a JSON object or a string, name: what the latency is recorded under
+ *     (default insert for POST, lookup for GET)</li>
+ *     <li>The file is streamed, the run ends at its end or after warmup + duration</li>
+ * </ul>
+ */
+public class ReplayWorkload implements Workload, AutoCloseable {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private final double speed;
+    private final double intervalNanos;
+
+    private long index;
+    private int lineNumber;
+
+    public ReplayWorkload(LoadTestOptions options, ObjectMapper objectMapper) throws IOException {
+        this.reader = Files.newBufferedReader(options.replay());
+        this.objectMapper = objectMapper;
+        this.speed = options.speed();
+        this.intervalNanos = 1e9 / options.rate();
+    }
+
+    @Override
+    public Operation next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        JsonNode request = objectMapper.readTree(line);
+        if (!request.hasNonNull("method") || !request.hasNonNull("path")) {
+            throw new IOException("Line " + lineNumber + " needs a method and a path");
+        }
+        String method = request.get("method").asString().toUpperCase();
+        long offsetNanos = request.hasNonNull("at")
+                ? (long) (request.get("at").asDouble() * 1_000_000 / speed)
+                : (long) (index * intervalNanos);
+        index++;
+
+        JsonNode body = request.get("body");
+        String name = request.hasNonNull("name") ? request.get("name").asString()
+                : switch (method) {
+                    case "POST" -> "insert";
+                    case "GET" -> "lookup";
+                    default -> method.toLowerCase();
+                };
+        return new Operation(name, offsetNanos, method, request.get("path").asString(),
+                body == null || body.isNull() ? null : body.isString() ? body.asString() : body.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
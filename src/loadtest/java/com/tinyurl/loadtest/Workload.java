@@ -0,0 +1,14 @@
+package com.tinyurl.loadtest;
+
+import java.io.IOException;
+
+/**
+ * Sequence of operations in the order they are due.
+ */
+public interface Workload {
+
+    /**
+     * @return the next operation, or null when the workload is exhausted
+     */
+    Operation next() throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.tinyurl.loadtest;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf distribution over ranks 0..n-1: rank k is drawn with probability proportional to 1 / (k + 1)^exponent,
+ * so a few codes get most of the lookups and the rest form a long tail.
+ * Sampling is a binary search over the precomputed CDF (8 bytes per rank).
+ */
+public class ZipfDistribution {
+
+    private final double[] cdf;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n <= 0 || exponent < 0) {
+            throw new IllegalArgumentException("Zipf needs n > 0 and a non-negative exponent");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+}
@@ -6,22 +6,76 @@ public class ApplicationConstants {
     public static final int BASE = BASE62_ALPHABET.length();
 
     public static final String SNOWFLAKE_NEXT_ID_URL = "/api/v1/snowflake/next";
+    public static final String SNOWFLAKE_BATCH_URL = "/api/v1/snowflake/batch";
+
+    // Snowflake id layout: 41 bits of milliseconds since the epoch | 10 bits node id | 12 bits sequence
+    public static final long SNOWFLAKE_EPOCH_MS = 1609459200000L; // 2021-01-01T00:00:00Z
+    public static final int SNOWFLAKE_NODE_ID_BITS = 10;
+    public static final int SNOWFLAKE_SEQUENCE_BITS = 12;
     public static final int MAX_RETRIES = 3;
 
     public static final String CACHE_KEY_PREFIX = "url:";
     public static final String CLICK_COUNT_KEY_PREFIX = "clicks:";
+    // Bucketed Redis layout (cache.redis.layout=buckets): hashes of code → longUrl / code → pending clicks
+    public static final String URL_BUCKET_KEY_PREFIX = "ub:";
+    public static final String CLICK_BUCKET_KEY_PREFIX = "cb:";
 
     // SQL Queries
 
-    // Query to atomically increment the counter.
-    public static final String UPDATE_CLICK = "UPDATE tiny_urls SET click_count = click_count + 1 WHERE short_url = ?";
+    // Query to add click counts flushed from Redis
+    public static final String ADD_CLICKS = "UPDATE tiny_urls SET click_count = click_count + ? WHERE short_url = ?";
 
     // Query to retrieve the long_url
     public static final String SELECT_LONG_URL = "SELECT long_url FROM tiny_urls WHERE short_url = ?";
 
     // Query to insert a new short url mapping - MySQL
-    public static final String INSERT_URLS = "INSERT IGNORE INTO tiny_urls (short_url, long_url) VALUES (?, ?)";
+    public static final String INSERT_URLS = "INSERT IGNORE INTO tiny_urls (short_url, long_url, long_url_hash) VALUES (?, ?, ?)";
+
+    // Multi-row insert for bulk shortening, one (?, ?, ?) group per row
+    public static final String INSERT_URLS_MULTI_ROW = "INSERT IGNORE INTO tiny_urls (short_url, long_url, long_url_hash) VALUES ";
+
+    // Query to check if a long url is already present - by its fixed-width hash (unique, so at most one row);
+    // long_url tells the url itself from another url with the same hash
+    public static final String SEARCH_LONG_URL = "SELECT short_url, long_url FROM tiny_urls WHERE long_url_hash = ?";
+
+    // Bulk versions of the lookups above, %s is replaced with one ? per value
+    public static final String SEARCH_LONG_URLS = "SELECT short_url, long_url FROM tiny_urls WHERE long_url_hash IN (%s)";
+    public static final String SELECT_LONG_URLS = "SELECT short_url, long_url FROM tiny_urls WHERE short_url IN (%s)";
+
+    // Upper bound on the number of urls in one bulk request chunk (and thus on IN lists and multi-row inserts)
+    public static final int MAX_BULK_CHUNK_SIZE = 1000;
+
+    // long_url column width
+    public static final int MAX_LONG_URL_LENGTH = 2048;
+
+    // Queries to backfill long_url_hash for rows created before the column existed, paged by primary key.
+    // Rows whose normalized url another row already holds keep a NULL hash, the page cursor moves past them
+    public static final String SELECT_MISSING_LONG_URL_HASH = "SELECT short_url, long_url FROM tiny_urls WHERE long_url_hash IS NULL AND short_url > ? ORDER BY short_url LIMIT ?";
+    public static final String SELECT_LONG_URL_HASHES = "SELECT long_url_hash, long_url FROM tiny_urls WHERE long_url_hash IN (%s)";
+    // idx_long_url_hash covers long_url_hash and this many leading chars of long_url, see schema.sql
+    public static final int LONG_URL_INDEX_PREFIX = 760;
+    public static final String UPDATE_LONG_URL_HASH = "UPDATE tiny_urls SET long_url_hash = ? WHERE short_url = ?";
+
+    // Query to stream all short urls into the Bloom filter
+    public static final String SELECT_ALL_SHORT_URLS = "SELECT short_url FROM tiny_urls";
+
+    // Queries to stream the most clicked / most recent mappings into the cache at startup.
+    // No index on click_count or created_at: a one-off top-N sort at startup is cheaper than maintaining an index
+    // on every click flush
+    public static final String SELECT_TOP_URLS_BY_CLICKS = "SELECT short_url, long_url FROM tiny_urls ORDER BY click_count DESC LIMIT ?";
+    public static final String SELECT_TOP_URLS_BY_RECENCY = "SELECT short_url, long_url FROM tiny_urls ORDER BY created_at DESC LIMIT ?";
+
+    // Long url dedup index of a sharded store: url_dedup rows live on the shard of their long_url_hash
+    public static final String INSERT_URL_DEDUP_MULTI_ROW = "INSERT IGNORE INTO url_dedup (long_url_hash, long_url, short_url) VALUES ";
+    public static final String SEARCH_URL_DEDUP = "SELECT short_url, long_url FROM url_dedup WHERE long_url_hash = ?";
+    public static final String SEARCH_URL_DEDUPS = "SELECT short_url, long_url FROM url_dedup WHERE long_url_hash IN (%s)";
+    public static final String SELECT_URL_DEDUP_CLAIMS = "SELECT short_url, long_url FROM url_dedup WHERE short_url IN (%s)";
 
-    // Query to check if a long url is already present
-    public static final String SEARCH_LONG_URL = "SELECT short_url FROM tiny_urls WHERE long_url = ?";
+    // Queries to move rows between shards, paged by primary key
+    public static final String SELECT_URLS_PAGE = "SELECT short_url, long_url, long_url_hash, click_count, created_at FROM tiny_urls WHERE short_url > ? ORDER BY short_url LIMIT ?";
+    public static final String INSERT_URLS_WITH_STATS_MULTI_ROW = "INSERT IGNORE INTO tiny_urls (short_url, long_url, long_url_hash, click_count, created_at) VALUES ";
+    public static final String SELECT_CLICK_COUNTS_FOR_UPDATE = "SELECT short_url, click_count FROM tiny_urls WHERE short_url IN (%s) FOR UPDATE";
+    public static final String DELETE_URLS = "DELETE FROM tiny_urls WHERE short_url IN (%s)";
+    public static final String SELECT_URL_DEDUP_PAGE = "SELECT long_url_hash, long_url, short_url FROM url_dedup WHERE short_url > ? ORDER BY short_url LIMIT ?";
+    public static final String DELETE_URL_DEDUP = "DELETE FROM url_dedup WHERE short_url IN (%s)";
 }
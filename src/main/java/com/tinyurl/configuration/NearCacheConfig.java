@@ -0,0 +1,39 @@
+package com.tinyurl.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tinyurl.metrics.PerformanceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p> In-process (L1) cache sitting in front of Redis (L2):
+ * <p>- Admission/Eviction: W-TinyLFU (Caffeine) - one-hit wonders don't push out hot links
+ * <p>- Bound: approximate heap size of the entries, not entry count
+ * <p>- Expiry: none - shortUrl→longUrl mappings are immutable
+ */
+@Configuration
+public class NearCacheConfig {
+
+    // Rough per-entry cost of the key/value String headers and the cache node itself
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    @Value("${cache.l1.max-size-mb:64}")
+    private long maxSizeMb;
+
+    @Bean
+    public Cache<String, String> urlNearCache(PerformanceMetrics performanceMetrics) {
+        Cache<String, String> cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeMb * 1024 * 1024)
+                .weigher(NearCacheConfig::weigh)
+                .recordStats()
+                .build();
+        return performanceMetrics.monitorCache("l1", cache);
+    }
+
+    private static int weigh(String shortUrl, String longUrl) {
+        // Strings are Latin-1 compacted for URLs, so one byte per char
+        return ENTRY_OVERHEAD_BYTES + shortUrl.length() + longUrl.length();
+    }
+}
@@ -0,0 +1,88 @@
+package com.tinyurl.configuration;
+
+import com.tinyurl.controller.ReactiveUrlHandler;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Duration;
+
+/**
+ * <p> Reactive serving stack, enabled with spring.main.web-application-type=reactive (Netty instead of Tomcat):
+ * <p>- GET /api/v1/tinyurl/{shortUrl} and POST /api/v1/tinyurl/shorten are served by a functional router,
+ * see {@link ReactiveUrlHandler}
+ * <p>- MySQL through an R2DBC connection pool, Redis through ReactiveStringRedisTemplate
+ * <p>- Background jobs (click flush, backfills, Bloom filter loading) keep using JDBC and StringRedisTemplate
+ * <p>- Not available with sharding.additional-urls: R2DBC only reaches the first database, so startup fails instead
+ * of missing the rows of the other shards and storing long urls without their url_dedup claim
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStackConfig {
+
+    @Value("${reactive.r2dbc.url}")
+    private String r2dbcUrl;
+
+    @Value("${reactive.r2dbc.username:root}")
+    private String r2dbcUsername;
+
+    @Value("${reactive.r2dbc.password:}")
+    private String r2dbcPassword;
+
+    @Value("${reactive.r2dbc.pool.max-size:20}")
+    private int poolMaxSize;
+
+    @Value("${reactive.r2dbc.pool.max-acquire-time-ms:30000}")
+    private long poolMaxAcquireTimeMs;
+
+    @Value("${sharding.additional-urls:}")
+    private String shardingAdditionalUrls;
+
+    // Not a bean: a ConnectionFactory bean would switch off the JDBC DataSource auto-configuration
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        if (!shardingAdditionalUrls.isBlank()) {
+            throw new IllegalStateException("The reactive stack doesn't support sharding.additional-urls, "
+                    + "use spring.main.web-application-type=servlet with a sharded tiny_urls");
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate()
+                .option(ConnectionFactoryOptions.USER, r2dbcUsername)
+                .option(ConnectionFactoryOptions.PASSWORD, r2dbcPassword)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("TinyUrlR2dbcPool")
+                .maxSize(poolMaxSize)
+                .maxAcquireTime(Duration.ofMillis(poolMaxAcquireTimeMs))
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> tinyUrlRoutes(ReactiveUrlHandler handler) {
+        return RouterFunctions.route()
+                .path("/api/v1/tinyurl", builder -> builder
+                        .POST("/shorten", handler::post)
+                        .GET("/{shortUrl}", handler::get))
+                .onError(Throwable.class, (error, request) -> handler.onError(error))
+                .build();
+    }
+}
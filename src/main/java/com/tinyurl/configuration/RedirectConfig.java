@@ -0,0 +1,20 @@
+package com.tinyurl.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RedirectConfig {
+
+    @Value("${redirect.mode:json}")
+    private String redirectMode;
+
+    @Value("${redirect.permanent.max-age-seconds:86400}")
+    private long permanentMaxAgeSeconds;
+
+    @Bean
+    public RedirectPolicy redirectPolicy() {
+        return new RedirectPolicy(RedirectPolicy.Mode.valueOf(redirectMode.toUpperCase()), permanentMaxAgeSeconds);
+    }
+}
@@ -0,0 +1,116 @@
+package com.tinyurl.configuration;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How GET /{shortUrl} answers a resolved code.
+ * <ul>
+ *     <li>JSON: 200 with {"longUrl": ...}, revalidated with If-None-Match (304 without a body)</li>
+ *     <li>PERMANENT: 301 with a Location header and no body, cacheable for max-age seconds -
+ *     repeat clicks from the same browser are not seen by the service</li>
+ *     <li>TEMPORARY: 302 with a Location header and no body, not cached - every click is counted</li>
+ *     <li>The ETag is derived from the code and its long url, which never change once created</li>
+ *     <li>Preconditions are only evaluated for the 200, a redirect is always sent in full (RFC 9110 13.2.1)</li>
+ * </ul>
+ */
+public class RedirectPolicy {
+
+    public enum Mode {
+        JSON,
+        PERMANENT,
+        TEMPORARY
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Mode mode;
+    private final String cacheControl;
+
+    public RedirectPolicy(Mode mode, long maxAgeSeconds) {
+        if (maxAgeSeconds < 0) {
+            throw new IllegalArgumentException("Redirect max-age must not be negative");
+        }
+        this.mode = mode;
+        this.cacheControl = mode == Mode.PERMANENT ? "public, max-age=" + maxAgeSeconds : "private, no-cache";
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isRedirect() {
+        return mode != Mode.JSON;
+    }
+
+    /**
+     * @return 301 or 302 for the redirect modes, 200 for JSON
+     */
+    public int status() {
+        return switch (mode) {
+            case JSON -> 200;
+            case PERMANENT -> 301;
+            case TEMPORARY -> 302;
+        };
+    }
+
+    public String cacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * @return a strong entity tag for the mapping
+     */
+    public String etag(String shortUrl, String longUrl) {
+        return "\"" + shortUrl + '-' + Integer.toHexString(longUrl.hashCode()) + "\"";
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match request header, may be null
+     * @return true if a 304 can be sent instead of the response
+     */
+    public boolean isNotModified(String ifNoneMatch, String etag) {
+        if (isRedirect() || ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            // weak comparison: W/"x" matches "x"
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param longUrl a stored long url
+     * @return the url as a Location header value: non-ASCII, space and control characters percent-encoded
+     */
+    public static String location(String longUrl) {
+        int i = 0;
+        while (i < longUrl.length() && isHeaderSafe(longUrl.charAt(i))) {
+            i++;
+        }
+        if (i == longUrl.length()) {
+            return longUrl;
+        }
+
+        StringBuilder location = new StringBuilder(longUrl.length() + 16).append(longUrl, 0, i);
+        for (byte b : longUrl.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if (isHeaderSafe(c)) {
+                location.append(c);
+            } else {
+                location.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        return location.toString();
+    }
+
+    private static boolean isHeaderSafe(char c) {
+        return c > ' ' && c < 0x7F;
+    }
+}
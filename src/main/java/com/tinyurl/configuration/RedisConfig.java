@@ -14,6 +14,8 @@ import java.time.Duration;
  * <p>- TTL: 24 hours (URLs are immutable, but we refresh on access for hot URLs)
  * <p>- Eviction: LRU (Least Recently Used) - configure in Redis with maxmemory-policy
  * <p>- Pattern: Cache-Aside with TTL refresh on read hits
+ * <p>- TTL refresh: same round trip as the read (GETEX), sampled by cache.url.ttl-refresh.sample-rate
+ * <p>- Layout: one key per url, or urls and click counts grouped in small hashes (cache.redis.layout, see {@link RedisLayout})
  */
 @Configuration
 public class RedisConfig {
@@ -21,6 +23,21 @@ public class RedisConfig {
     @Value("${cache.url.ttl-hours:24}")
     private int ttlHours;
 
+    @Value("${cache.url.ttl-refresh.mode:getex}")
+    private String ttlRefreshMode;
+
+    @Value("${cache.url.ttl-refresh.sample-rate:1.0}")
+    private double ttlRefreshSampleRate;
+
+    @Value("${cache.redis.layout:keys}")
+    private String layout;
+
+    @Value("${cache.redis.url-buckets:1048576}")
+    private int urlBuckets;
+
+    @Value("${cache.redis.click-buckets:4096}")
+    private int clickBuckets;
+
     @Bean
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
         StringRedisTemplate template = new StringRedisTemplate();
@@ -35,5 +52,15 @@ public class RedisConfig {
     public Duration cacheTtl() {
         return Duration.ofHours(ttlHours);
     }
+
+    @Bean
+    public TtlRefreshPolicy ttlRefreshPolicy() {
+        return new TtlRefreshPolicy(TtlRefreshPolicy.Mode.valueOf(ttlRefreshMode.toUpperCase()), ttlRefreshSampleRate);
+    }
+
+    @Bean
+    public RedisLayout redisLayout() {
+        return new RedisLayout(RedisLayout.Mode.valueOf(layout.toUpperCase()), urlBuckets, clickBuckets);
+    }
 }
 
@@ -0,0 +1,85 @@
+package com.tinyurl.configuration;
+
+import com.tinyurl.utils.Hashing;
+
+import static com.tinyurl.ApplicationConstants.CACHE_KEY_PREFIX;
+import static com.tinyurl.ApplicationConstants.CLICK_BUCKET_KEY_PREFIX;
+import static com.tinyurl.ApplicationConstants.CLICK_COUNT_KEY_PREFIX;
+import static com.tinyurl.ApplicationConstants.URL_BUCKET_KEY_PREFIX;
+
+/**
+ * How mappings and pending click counts are laid out in Redis.
+ * <ul>
+ *     <li>KEYS: one string key per code, "url:{code}" → longUrl with its own TTL, "clicks:{code}" → count</li>
+ *     <li>BUCKETS: codes are hashed into a fixed number of small hashes, "ub:{bucket}" {code → longUrl} and
+ *     "cb:{bucket}" {code → count}. Hashes under hash-max-listpack-entries / -value are stored as one listpack,
+ *     without the per-key dictEntry, robj, key sds and expire entry that dominate KEYS for short values</li>
+ *     <li>Buckets are picked by a hash of the code, not by an id prefix: Snowflake ids are sparse, so codes sharing
+ *     a prefix are mostly alone in their bucket</li>
+ * </ul>
+ * Plain class (no Spring types) so the memory report in src/loadtest can use the same bucketing.
+ */
+public class RedisLayout {
+
+    public enum Mode {
+        KEYS,
+        BUCKETS
+    }
+
+    private final Mode mode;
+    private final int urlBuckets;
+    private final int clickBuckets;
+
+    /**
+     * @param urlBuckets   number of url hashes, about cached mappings / 100 keeps them listpack encoded
+     * @param clickBuckets number of click count hashes, about codes clicked between two flushes / 100
+     */
+    public RedisLayout(Mode mode, int urlBuckets, int clickBuckets) {
+        if (mode == Mode.BUCKETS && (urlBuckets < 1 || clickBuckets < 1)) {
+            throw new IllegalArgumentException("Bucketed Redis layout needs at least one url and one click bucket");
+        }
+        this.mode = mode;
+        this.urlBuckets = urlBuckets;
+        this.clickBuckets = clickBuckets;
+    }
+
+    public static RedisLayout keys() {
+        return new RedisLayout(Mode.KEYS, 0, 0);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isBucketed() {
+        return mode == Mode.BUCKETS;
+    }
+
+    /**
+     * @return the string key of the mapping (KEYS) or the hash holding it as field shortUrl (BUCKETS)
+     */
+    public String urlKey(String shortUrl) {
+        return isBucketed() ? URL_BUCKET_KEY_PREFIX + bucketOf(shortUrl, urlBuckets) : CACHE_KEY_PREFIX + shortUrl;
+    }
+
+    /**
+     * @return the counter key of the code (KEYS) or the hash holding its count as field shortUrl (BUCKETS)
+     */
+    public String clickKey(String shortUrl) {
+        return isBucketed() ? CLICK_BUCKET_KEY_PREFIX + bucketOf(shortUrl, clickBuckets) : CLICK_COUNT_KEY_PREFIX + shortUrl;
+    }
+
+    /**
+     * @return SCAN pattern matching every click count key or hash
+     */
+    public String clickKeyPattern() {
+        return (isBucketed() ? CLICK_BUCKET_KEY_PREFIX : CLICK_COUNT_KEY_PREFIX) + "*";
+    }
+
+    /**
+     * Stable across JVMs and restarts, see {@link Hashing}.
+     */
+    public static int bucketOf(String shortUrl, int buckets) {
+        return (int) Long.remainderUnsigned(Hashing.fnv1aMix(shortUrl), buckets);
+    }
+}
@@ -0,0 +1,114 @@
+package com.tinyurl.configuration;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.ReplicaSet;
+import com.tinyurl.repository.ShardRouter;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p> Shards of tiny_urls, see {@link ShardRouter}:
+ * <p>- Shard 0 is the spring.datasource database, shards 1..N come from sharding.additional-urls
+ * <p>- Additional shards get their own Hikari pool (same credentials) and schema.sql on startup
+ * <p>- Read replicas of shard i come from replica.urls.i (comma separated), with read-only pools of replica.pool-size
+ * <p>- Pools are private, not beans: a DataSource bean would switch off the spring.datasource auto-configuration
+ */
+@Configuration
+@Slf4j
+public class ShardingConfig {
+
+    // comma separated JDBC urls, empty = a single database
+    @Value("${sharding.additional-urls:}")
+    private String additionalUrls;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${sharding.pool-size:10}")
+    private int poolSize;
+
+    @Value("${sharding.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${replica.pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${replica.down-ms:5000}")
+    private long replicaDownMs;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public ShardRouter shardRouter(JdbcTemplate jdbcTemplate, Environment environment, PerformanceMetrics performanceMetrics) {
+        List<JdbcTemplate> shards = new ArrayList<>();
+        shards.add(jdbcTemplate);
+        for (String url : splitUrls(additionalUrls)) {
+            HikariDataSource pool = createPool(url, "TinyUrlShard" + shards.size(), poolSize, false);
+            initSchema(pool);
+            shards.add(new JdbcTemplate(pool));
+        }
+
+        List<ReplicaSet> replicaSets = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<JdbcTemplate> replicas = new ArrayList<>();
+            for (String url : splitUrls(environment.getProperty("replica.urls." + shard, ""))) {
+                replicas.add(new JdbcTemplate(createPool(url, "TinyUrlShard" + shard + "Replica" + replicas.size(),
+                        replicaPoolSize, true)));
+            }
+            if (!replicas.isEmpty()) {
+                log.info("Shard {} reads from {} replicas", shard, replicas.size());
+            }
+            replicaSets.add(ReplicaSet.withReplicas("shard" + shard, shards.get(shard), replicas,
+                    performanceMetrics, replicaDownMs));
+        }
+        if (shards.size() > 1) {
+            log.info("tiny_urls sharded over {} databases", shards.size());
+        }
+        return ShardRouter.withReplicaSets(replicaSets, virtualNodes);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource createPool(String url, String name, int size, boolean readOnly) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(size);
+        config.setPoolName(name);
+        config.setReadOnly(readOnly);
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static List<String> splitUrls(String urls) {
+        return Arrays.stream(urls.split(",")).map(String::strip).filter(url -> !url.isEmpty()).toList();
+    }
+
+    // same as spring.sql.init for the primary: migrations fail harmlessly once applied
+    private static void initSchema(HikariDataSource pool) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        populator.setContinueOnError(true);
+        populator.execute(pool);
+    }
+}
@@ -0,0 +1,45 @@
+package com.tinyurl.configuration;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a cache read also refreshes the TTL of the key it reads.
+ * <ul>
+ *     <li>Refreshes are sampled with a fixed probability, so a key read n times is
+ *     re-extended about n * sampleRate times instead of n times</li>
+ *     <li>Refreshing reads take one round trip: GETEX, or a GET + PEXPIRE Lua script for Redis &lt; 6.2</li>
+ * </ul>
+ */
+public class TtlRefreshPolicy {
+
+    public enum Mode {
+        GETEX,
+        LUA
+    }
+
+    private final Mode mode;
+    private final double sampleRate;
+
+    public TtlRefreshPolicy(Mode mode, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("TTL refresh sample rate must be between 0 and 1");
+        }
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return true if this read should also refresh the TTL
+     */
+    public boolean shouldRefresh() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+}
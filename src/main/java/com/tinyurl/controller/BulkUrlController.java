@@ -0,0 +1,169 @@
+package com.tinyurl.controller;
+
+import com.tinyurl.metrics.TimedOperation;
+import com.tinyurl.model.BulkShortenResult;
+import com.tinyurl.service.BulkUrlService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.tinyurl.ApplicationConstants.MAX_BULK_CHUNK_SIZE;
+
+/**
+ * Bulk shortening for ingestion jobs and bulk resolving for analytics / link previews.
+ * <ul>
+ *     <li>Shorten request: a JSON array or an NDJSON stream; each element is a url string or {"longUrl": "..."}</li>
+ *     <li>The request is read and shortened in chunks of {@code bulk.chunk-size} urls, see {@link BulkUrlService}</li>
+ *     <li>Shorten response: NDJSON, one {@link BulkShortenResult} per element in request order,
+ *     flushed after every chunk</li>
+ *     <li>Resolve: JSON array of up to {@code bulk.resolve.max-codes} short codes → resolved and notFound codes.
+ *     Resolving is not a click</li>
+ * </ul>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/tinyurl")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class BulkUrlController {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final BulkUrlService bulkUrlService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${bulk.resolve.max-codes:10000}")
+    private int resolveMaxCodes;
+
+    // the response is written directly, errors before the first result still go through GlobalExceptionHandler as JSON
+    @PostMapping(value = "/shorten/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @TimedOperation("bulk")
+    public void bulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int chunkLimit = Math.clamp(chunkSize, 1, MAX_BULK_CHUNK_SIZE);
+        long index = 0;
+        try (JsonParser parser = objectMapper.createParser(request.getInputStream())) {
+            // NDJSON is a sequence of root-level values, which the parser reads like the elements of an array
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            OutputStream out = response.getOutputStream();
+            List<String> chunk = new ArrayList<>(chunkLimit);
+            try {
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    chunk.add(readLongUrl(parser, token));
+                    if (chunk.size() == chunkLimit) {
+                        index = shortenAndWrite(out, chunk, index);
+                    }
+                    token = parser.nextToken();
+                }
+            } catch (JacksonException e) {
+                // urls before the malformed element are still shortened, then the stream ends with an error line
+                index = shortenAndWrite(out, chunk, index);
+                if (index == 0) {
+                    throw badRequest(e);
+                }
+                write(out, BulkShortenResult.failed(index, null, "Malformed request: " + e.getOriginalMessage()));
+                out.flush();
+                return;
+            }
+            shortenAndWrite(out, chunk, index);
+        } catch (JacksonException e) {
+            throw badRequest(e);
+        }
+    }
+
+    @PostMapping("/resolve")
+    @TimedOperation("resolve")
+    public ResponseEntity<?> resolve(@RequestBody List<String> shortUrls) {
+        if (shortUrls.size() > resolveMaxCodes) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("At most %d short urls per request", resolveMaxCodes));
+        }
+        Map<String, String> resolved = bulkUrlService.resolve(shortUrls);
+        List<String> notFound = shortUrls.stream()
+                .filter(shortUrl -> !resolved.containsKey(shortUrl))
+                .distinct()
+                .toList();
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(Map.of("resolved", resolved, "notFound", notFound));
+    }
+
+    /**
+     * @return the url of the current element, null if the element is neither a string nor an object with longUrl
+     */
+    private String readLongUrl(JsonParser parser, JsonToken token) {
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getString();
+        }
+        if (token == JsonToken.START_OBJECT) {
+            String longUrl = null;
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String property = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && "longUrl".equals(property)) {
+                    longUrl = parser.getString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return longUrl;
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Shortens and writes out the chunk, then clears it.
+     *
+     * @return index of the element after the chunk
+     */
+    private long shortenAndWrite(OutputStream out, List<String> chunk, long index) throws IOException {
+        if (chunk.isEmpty()) {
+            return index;
+        }
+        for (BulkShortenResult result : bulkUrlService.shorten(chunk, index)) {
+            write(out, result);
+        }
+        out.flush();
+        index += chunk.size();
+        chunk.clear();
+        return index;
+    }
+
+    private void write(OutputStream out, BulkShortenResult result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write(NEWLINE);
+    }
+
+    private static ResponseStatusException badRequest(JacksonException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed request: " + e.getOriginalMessage());
+    }
+}
@@ -0,0 +1,194 @@
+package com.tinyurl.controller;
+
+import com.tinyurl.configuration.RedirectPolicy;
+import com.tinyurl.exception.GlobalExceptionHandler;
+import com.tinyurl.exception.LongUrlHashCollisionException;
+import com.tinyurl.metrics.OperationTimer;
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.model.Request;
+import com.tinyurl.repository.ReactiveUrlRepository;
+import com.tinyurl.service.ClickTrackingService;
+import com.tinyurl.service.IdGenerator;
+import com.tinyurl.service.ReactiveUrlCacheService;
+import com.tinyurl.service.ShortUrlFilter;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static com.tinyurl.ApplicationConstants.MAX_RETRIES;
+
+/**
+ * Non-blocking {@link TinyUrlController#get} and {@link TinyUrlController#post} for the reactive serving stack.
+ * Same flow and responses; Redis, MySQL and the id generator are only ever called without blocking
+ * (see {@link IdGenerator#getNextIdAsync()} for the remote generator without lease mode).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUrlHandler {
+
+    private final Base62Encoder base62Encoder;
+    private final IdGenerator idGenerator;
+    private final ReactiveUrlRepository reactiveUrlRepository;
+    private final ReactiveUrlCacheService reactiveUrlCacheService;
+    private final ClickTrackingService clickTrackingService;
+    private final LongUrlHasher longUrlHasher;
+    private final ShortUrlFilter shortUrlFilter;
+    private final PerformanceMetrics performanceMetrics;
+    private final RedirectPolicy redirectPolicy;
+
+    @Value("${shorturl.fixed-width:0}")
+    private int fixedWidth;
+
+    private OperationTimer getTimer;
+    private OperationTimer postTimer;
+
+    @PostConstruct
+    public void initTimers() {
+        getTimer = performanceMetrics.timer("reactive.get");
+        postTimer = performanceMetrics.timer("reactive.post");
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        String shortUrl = request.pathVariable("shortUrl");
+        // Codes that can't exist are rejected before touching any store
+        if (!base62Encoder.isValid(shortUrl) || !shortUrlFilter.mightExist(shortUrl)) {
+            return notFound(shortUrl);
+        }
+
+        long start = getTimer.start();
+        return reactiveUrlCacheService.get(shortUrl)
+                // On Cache MISS - fetch from DB and populate the cache
+                .switchIfEmpty(Mono.defer(() -> reactiveUrlRepository.findLongUrl(shortUrl)
+                        .flatMap(longUrl -> reactiveUrlCacheService.put(shortUrl, longUrl).thenReturn(longUrl))))
+                .flatMap(longUrl -> recordClick(shortUrl).then(resolved(request, shortUrl, longUrl)))
+                .switchIfEmpty(Mono.defer(() -> notFound(shortUrl)))
+                .doOnError(getTimer::error)
+                .doFinally(signal -> getTimer.stop(start));
+    }
+
+    public Mono<ServerResponse> post(ServerRequest request) {
+        long start = postTimer.start();
+        return request.bodyToMono(Request.class)
+                .filter(body -> body.getLongUrl() != null && !body.getLongUrl().isBlank())
+                .flatMap(body -> shorten(longUrlHasher.normalize(body.getLongUrl())))
+                .switchIfEmpty(Mono.defer(() -> error(HttpStatus.BAD_REQUEST, "longUrl: longUrl is required")))
+                .doOnError(postTimer::error)
+                .doFinally(signal -> postTimer.stop(start));
+    }
+
+    private Mono<ServerResponse> shorten(String longUrl) {
+        log.info("Received request for longUrl={}", longUrl);
+        return reactiveUrlRepository.findShortUrlByLongUrl(longUrl)
+                .flatMap(existingShortUrl -> shortUrlResponse(HttpStatus.OK, existingShortUrl))
+                .switchIfEmpty(Mono.defer(() -> idGenerator.getNextIdAsync()
+                        .map(id -> base62Encoder.encode(id.getId(), fixedWidth))
+                        .flatMap(shortUrl -> reactiveUrlRepository.save(shortUrl, longUrl)
+                                .flatMap(inserted -> inserted
+                                        ? Mono.fromRunnable(() -> shortUrlFilter.put(shortUrl))
+                                        .then(reactiveUrlCacheService.put(shortUrl, longUrl))
+                                        .then(shortUrlResponse(HttpStatus.CREATED, shortUrl))
+                                        : findAfterRace(longUrl)))));
+    }
+
+    /**
+     * INSERT IGNORE skipped the row (a concurrent request stored the same long url first, or the id was reused):
+     * return the row stored for this long url, retrying in case it isn't committed yet. Same as the servlet controller.
+     */
+    private Mono<ServerResponse> findAfterRace(String longUrl) {
+        log.warn("Race condition detected for longUrl={}. Handling gracefully...", longUrl);
+        return reactiveUrlRepository.findShortUrlByLongUrl(longUrl)
+                .repeatWhenEmpty(MAX_RETRIES, attempts -> attempts.delayUntil(attempt ->
+                        Mono.delay(Duration.ofMillis(50L * (attempt + 1)))))
+                .flatMap(shortUrl -> shortUrlResponse(HttpStatus.OK, shortUrl))
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.error("Failed to retrieve shortUrl for existing longUrl={} after maximum retries", longUrl);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                }));
+    }
+
+    /**
+     * Same responses as the servlet controller, see {@link RedirectPolicy}.
+     */
+    private Mono<ServerResponse> resolved(ServerRequest request, String shortUrl, String longUrl) {
+        String etag = redirectPolicy.etag(shortUrl, longUrl);
+        if (redirectPolicy.isRedirect()) {
+            return ServerResponse.status(redirectPolicy.status())
+                    .header(HttpHeaders.LOCATION, RedirectPolicy.location(longUrl))
+                    .header(HttpHeaders.ETAG, etag)
+                    .header(HttpHeaders.CACHE_CONTROL, redirectPolicy.cacheControl())
+                    .build();
+        }
+        if (redirectPolicy.isNotModified(request.headers().firstHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.ETAG, etag)
+                    .header(HttpHeaders.CACHE_CONTROL, redirectPolicy.cacheControl())
+                    .build();
+        }
+        return ServerResponse.ok()
+                .header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.CACHE_CONTROL, redirectPolicy.cacheControl())
+                .bodyValue(Map.of("longUrl", longUrl));
+    }
+
+    /**
+     * Maps errors to the same responses as {@link GlobalExceptionHandler}.
+     */
+    public Mono<ServerResponse> onError(Throwable error) {
+        if (error instanceof ServerWebInputException inputError) {
+            return error(HttpStatus.BAD_REQUEST, inputError.getReason());
+        }
+        if (error instanceof LongUrlHashCollisionException collision) {
+            log.error("long_url_hash collision for longUrl={}: {}", collision.getLongUrl(), collision.getMessage());
+            return error(HttpStatus.CONFLICT, collision.getMessage());
+        }
+        if (error instanceof IllegalArgumentException) {
+            return error(HttpStatus.BAD_REQUEST, error.getMessage());
+        }
+        if (error instanceof WebClientException) {
+            log.error("External service error: {}", error.getMessage());
+            return error(HttpStatus.SERVICE_UNAVAILABLE,
+                    "External service temporarily unavailable. Please try again later.");
+        }
+        log.error("Unexpected error: ", error);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred. Please try again later.");
+    }
+
+    /**
+     * Counted in the node-local buffer when possible, otherwise with a non-blocking INCR.
+     */
+    private Mono<Void> recordClick(String shortUrl) {
+        if (clickTrackingService.recordLocally(shortUrl)) {
+            return Mono.empty();
+        }
+        return reactiveUrlCacheService.incrementClicks(shortUrl).then();
+    }
+
+    private static Mono<ServerResponse> shortUrlResponse(HttpStatus status, String shortUrl) {
+        return ServerResponse.status(status).bodyValue(Map.of("shortUrl", shortUrl));
+    }
+
+    private static Mono<ServerResponse> notFound(String shortUrl) {
+        return error(HttpStatus.NOT_FOUND, String.format("Short URL '%s' not found", shortUrl));
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).bodyValue(GlobalExceptionHandler.errorBody(status.value(), message));
+    }
+}
@@ -1,16 +1,30 @@
 package com.tinyurl.controller;
 
+import com.tinyurl.configuration.RedirectPolicy;
+import com.tinyurl.metrics.OperationTimer;
+import com.tinyurl.metrics.PerformanceMetrics;
 import com.tinyurl.metrics.TimedOperation;
 import com.tinyurl.model.Request;
 import com.tinyurl.repository.UrlRepository;
 import com.tinyurl.service.ClickTrackingService;
-import com.tinyurl.service.KeyFetchingService;
+import com.tinyurl.service.GroupCommitWriter;
+import com.tinyurl.service.IdGenerator;
+import com.tinyurl.service.ShortUrlFilter;
 import com.tinyurl.service.UrlCacheService;
 import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import com.tinyurl.utils.SingleFlight;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,7 +33,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
 import java.util.Map;
 
 import static com.tinyurl.ApplicationConstants.MAX_RETRIES;
@@ -27,22 +43,45 @@ import static com.tinyurl.ApplicationConstants.MAX_RETRIES;
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/tinyurl")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 public class TinyUrlController {
 
     private final Base62Encoder base62Encoder;
-    private final KeyFetchingService keyFetchingService;
+    private final IdGenerator idGenerator;
     private final UrlRepository urlRepository;
     private final UrlCacheService urlCacheService;
+    private final GroupCommitWriter groupCommitWriter;
     private final ClickTrackingService clickTrackingService;
+    private final LongUrlHasher longUrlHasher;
+    private final ShortUrlFilter shortUrlFilter;
+    private final RedirectPolicy redirectPolicy;
+    private final ObjectMapper objectMapper;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${shorturl.fixed-width:0}")
+    private int fixedWidth;
+
+    // concurrent cache misses for one code share a single DB read
+    private final SingleFlight<String, String> missLoads = new SingleFlight<>();
+
+    // the redirect path is timed with a pre-resolved timer instead of @TimedOperation
+    private OperationTimer getTimer;
+
+    @PostConstruct
+    public void initTimers() {
+        getTimer = performanceMetrics.timer("get");
+        performanceMetrics.functionCounter("get.miss.coalesced", missLoads, SingleFlight::coalescedCount);
+    }
 
     @PostMapping("/shorten")
     @TimedOperation("post")
     public ResponseEntity<?> post(@Valid @RequestBody Request request) {
-        String longUrl = request.getLongUrl();
+        // scheme and host are case-insensitive, normalize them so equivalent urls share one short url
+        String longUrl = longUrlHasher.normalize(request.getLongUrl());
         log.info("Received request for longUrl={}", longUrl);
 
-        // check if it already exists in the DB
+        // check if it already exists in the DB (by long url hash)
         String existingShortUrl = urlRepository.findShortUrlByLongUrl(longUrl);
         if (existingShortUrl != null) {
             log.info("Found existing shortUrl={}", existingShortUrl);
@@ -51,14 +90,14 @@ public class TinyUrlController {
                     .body(Map.of("shortUrl", existingShortUrl));
         }
 
-        // if it doesn't exist in the DB, call the KGS nextId endpoint and get an ID
-        long id = keyFetchingService.getNextId().getId();
+        // if it doesn't exist in the DB, get an ID from the KGS (remote service or embedded generator)
+        long id = idGenerator.getNextId().getId();
 
-        // calls base62encoder's encode method to get a short url
-        String shortUrl = base62Encoder.encode(id);
+        // calls base62encoder's encode method to get a short url (zero padded if a fixed width is configured)
+        String shortUrl = base62Encoder.encode(id, fixedWidth);
 
         // save the url in db
-        boolean inserted = urlRepository.save(shortUrl, longUrl);
+        boolean inserted = groupCommitWriter.save(shortUrl, longUrl);
 
         // if inserted, return the shortened url to the caller
         if (inserted) {
@@ -68,18 +107,17 @@ public class TinyUrlController {
                     .status(HttpStatus.CREATED)
                     .body(Map.of("shortUrl", shortUrl));
         } else {
-            // This can happen if two threads tried to insert the same url and one inserted it and the other didn't.
-            // But now there is a possibility of race condition here
-            // Suppose thread T1 and T2 tried inserting the same URL. T1 succeeded and T2 didn't.
-            // T2 will try to look the value of longUrl thinking it's already inserted in the DB
-            // But now suppose T1 hasn't committed the transaction yet, which will result in T2 returning null
-            // To fix this we can add a retry mechanism
+            // INSERT IGNORE skipped the row: a concurrent request stored the same long url first (idx_long_url_hash
+            // is unique, on url_dedup when sharded), or a row with this short_url already exists (the id was reused).
+            // Return the row stored for this long url, read from the primary since it was written moments ago,
+            // retrying in case it isn't committed yet. If a different url holds the same 64-bit hash and indexed
+            // long_url prefix, the lookup throws LongUrlHashCollisionException (409) instead of retrying.
 
             log.warn("Race condition detected for longUrl={}. Handling gracefully...", longUrl);
             String finalShortUrl = null;
             int attempts = 0;
             while (finalShortUrl == null && attempts < MAX_RETRIES) {
-                finalShortUrl = urlRepository.findShortUrlByLongUrl(longUrl);
+                finalShortUrl = urlRepository.findShortUrlByLongUrl(longUrl, true);
                 if (finalShortUrl == null) {
                     try {
                         attempts++;
@@ -100,40 +138,68 @@ public class TinyUrlController {
         }
     }
 
+    // Written directly to the response: redirects carry only headers, no ResponseEntity or body serialization
     @GetMapping("/{shortUrl}")
-    @TimedOperation("get")
-    public ResponseEntity<?> get(@PathVariable("shortUrl") String shortUrl) {
-        // First check the cache
-        String longUrl = urlCacheService.get(shortUrl);
+    public void get(@PathVariable("shortUrl") String shortUrl, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
+        long start = getTimer.start();
+        try {
+            resolve(shortUrl, request, response);
+        } catch (IOException | RuntimeException e) {
+            getTimer.error(e);
+            throw e;
+        } finally {
+            getTimer.stop(start);
+        }
+    }
 
-        // On Cache HIT - track click_count in Redis
-        if (longUrl != null) {
-            clickTrackingService.incrementInRedis(shortUrl);
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(Map.of("longUrl", longUrl));
+    private void resolve(String shortUrl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Codes that can't be Base62 encoded ids can't exist - reject them before touching any store.
+        // Same for codes the Bloom filter has never seen (scanners, typos).
+        if (!base62Encoder.isValid(shortUrl) || !shortUrlFilter.mightExist(shortUrl)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    String.format("Short URL '%s' not found", shortUrl));
         }
 
-        // On Cache MISS - fetch from DB (this also increments click count)
-        longUrl = urlRepository.incrementAndGetLongUrl(shortUrl);
+        // First check the cache
+        String longUrl = urlCacheService.get(shortUrl);
 
         if (longUrl == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    String.format("Short URL '%s' not found", shortUrl));
+            // On Cache MISS - fetch from DB with a single read, shared by concurrent misses for the same code
+            longUrl = missLoads.load(shortUrl, this::loadMiss);
+            if (longUrl == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        String.format("Short URL '%s' not found", shortUrl));
+            }
         }
 
-        // Populate the cache for future requests - Cache Aside Pattern
-        urlCacheService.put(shortUrl, longUrl);
-
-        // I am returning 200 OK for now.
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body(Map.of("longUrl", longUrl));
-        // Return 301 / 302 depending on actual requirement
-        /* return ResponseEntity
-                .status(HttpStatus.FOUND)
-                .header("Location", longUrl)
-                .build();*/
+        // Track click_count (buffered locally, merged into Redis) - a revalidation is a click too
+        clickTrackingService.recordClick(shortUrl);
+
+        // 301 / 302 / 200 JSON depending on redirect.mode
+        String etag = redirectPolicy.etag(shortUrl, longUrl);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, redirectPolicy.cacheControl());
+        if (redirectPolicy.isRedirect()) {
+            response.setStatus(redirectPolicy.status());
+            response.setHeader(HttpHeaders.LOCATION, RedirectPolicy.location(longUrl));
+            response.setContentLength(0);
+        } else if (redirectPolicy.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Map.of("longUrl", longUrl));
+        }
+    }
+
+    private String loadMiss(String shortUrl) {
+        String longUrl = urlRepository.findLongUrl(shortUrl);
+        if (longUrl != null) {
+            // Populate the cache for future requests - Cache Aside Pattern
+            urlCacheService.put(shortUrl, longUrl);
+        }
+        return longUrl;
     }
 
 }
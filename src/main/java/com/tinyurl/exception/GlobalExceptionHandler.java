@@ -42,6 +42,12 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(LongUrlHashCollisionException.class)
+    public ResponseEntity<Map<String, Object>> handleLongUrlHashCollision(LongUrlHashCollisionException ex) {
+        log.error("long_url_hash collision for longUrl={}: {}", ex.getLongUrl(), ex.getMessage());
+        return buildErrorResponse(HttpStatus.CONFLICT.value(), ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST.value(), ex.getMessage());
@@ -57,13 +63,19 @@ public class GlobalExceptionHandler {
     }
 
     private ResponseEntity<Map<String, Object>> buildErrorResponse(int status, String message) {
-        Map<String, Object> body = Map.of(
+        return ResponseEntity.status(status).body(errorBody(status, message));
+    }
+
+    /**
+     * Error body shared with handlers outside of @RestController, e.g. the reactive router.
+     */
+    public static Map<String, Object> errorBody(int status, String message) {
+        return Map.of(
                 "timestamp", Instant.now().toString(),
                 "status", status,
                 "error", HttpStatus.valueOf(status).getReasonPhrase(),
                 "message", message != null ? message : "Unknown error"
         );
-        return ResponseEntity.status(status).body(body);
     }
 }
 
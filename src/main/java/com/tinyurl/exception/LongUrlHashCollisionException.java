@@ -0,0 +1,21 @@
+package com.tinyurl.exception;
+
+import lombok.Getter;
+
+/**
+ * Another long url is already stored under the same 64-bit long_url_hash and the same leading
+ * {@link com.tinyurl.ApplicationConstants#LONG_URL_INDEX_PREFIX} chars, so idx_long_url_hash keeps the url out.
+ * Urls that only share the hash are stored side by side.
+ */
+@Getter
+public class LongUrlHashCollisionException extends RuntimeException {
+
+    private final String longUrl;
+    private final long longUrlHash;
+
+    public LongUrlHashCollisionException(String longUrl, long longUrlHash) {
+        super(String.format("longUrl shares its hash %d with another stored url and can't be shortened", longUrlHash));
+        this.longUrl = longUrl;
+        this.longUrlHash = longUrlHash;
+    }
+}
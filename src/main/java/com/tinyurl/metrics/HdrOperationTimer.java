@@ -0,0 +1,234 @@
+package com.tinyurl.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Timer recording into striped HdrHistogram {@link Recorder}s, in microseconds (1µs to 60s, 2 significant digits).
+ * <ul>
+ *     <li>Recording: one stripe picked by thread id, a wait-free histogram increment and two {@link LongAdder}s</li>
+ *     <li>Every second ({@link #tick}, or on read if no tick ran) the stripes are drained into the last second's
+ *     histogram and the current one-minute slot of a 15 minute ring</li>
+ *     <li>Rolling windows: 1m / 5m / 15m are the last 1 / 5 / 15 complete minutes plus the current one. Their
+ *     statistics are computed on each tick, so reads only return a {@link LatencySnapshot}</li>
+ *     <li>Published as a FunctionTimer tinyurl.{name} (count, total since start), a FunctionCounter
+ *     tinyurl.{name}.errors, gauges tinyurl.{name}.percentile
+ *     (tag quantile) and tinyurl.{name}.max over the 1m window</li>
+ * </ul>
+ */
+final class HdrOperationTimer extends OperationTimer {
+
+    static final int[] WINDOW_MINUTES = {1, 5, 15};
+
+    private static final long HIGHEST_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SLOTS = 16;
+
+    private final Recorder[] stripes;
+    private final int stripeMask;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongSupplier clock;
+
+    // guarded by this
+    private final Histogram interval = newHistogram();
+    private final Histogram second = newHistogram();
+    // one-minute slots, slots[slot] is the current minute; int counts as a slot holds at most a minute of calls
+    private final IntCountsHistogram[] slots = new IntCountsHistogram[SLOTS];
+    private final long[] slotErrors = new long[SLOTS];
+    // sums of the last 1 / 5 / 15 complete minutes, recomputed once a minute
+    private final Histogram[] completeMinutes = new Histogram[WINDOW_MINUTES.length];
+    private final long[] completeErrors = new long[WINDOW_MINUTES.length];
+    private final Histogram scratch = newHistogram();
+    private int slot;
+    private int completeSlots;
+    private long minuteStart;
+    private long lastTick;
+    private long errorsAtLastTick;
+
+    private volatile LatencySnapshot lastSecond = LatencySnapshot.EMPTY;
+    private final LatencySnapshot[] windows = new LatencySnapshot[WINDOW_MINUTES.length];
+
+    HdrOperationTimer(String name, int sampleEvery, int stripeCount, LongSupplier clock) {
+        super(name, sampleEvery);
+        int size = Integer.highestOneBit(Math.max(1, stripeCount) * 2 - 1);
+        this.stripes = new Recorder[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        }
+        this.stripeMask = size - 1;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new IntCountsHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        }
+        for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+            completeMinutes[i] = newHistogram();
+            windows[i] = LatencySnapshot.EMPTY;
+        }
+        this.clock = clock;
+        this.minuteStart = clock.getAsLong();
+        this.lastTick = minuteStart;
+    }
+
+    void register(MeterRegistry meterRegistry, double[] percentiles) {
+        FunctionTimer.builder("tinyurl." + getName(), this, OperationTimer::count,
+                        timer -> timer.totalNanos(), TimeUnit.NANOSECONDS)
+                .description("Timer for " + getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("tinyurl." + getName() + ".errors", this, OperationTimer::errors)
+                .register(meterRegistry);
+        for (double percentile : percentiles) {
+            Gauge.builder("tinyurl." + getName() + ".percentile", this, timer -> timer.percentileMillis(percentile) / 1_000)
+                    .tag("quantile", String.valueOf(percentile))
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("tinyurl." + getName() + ".max", this, timer -> timer.maxMillis() / 1_000)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void recordSampled(long durationNanos) {
+        long micros = Math.clamp(durationNanos / 1_000, 0, HIGHEST_MICROS);
+        stripes[(int) Thread.currentThread().threadId() & stripeMask].recordValue(micros);
+        count.increment();
+        totalNanos.add(durationNanos);
+    }
+
+    @Override
+    public void error() {
+        errors.increment();
+    }
+
+    @Override
+    public long count() {
+        return count.sum() * getSampleEvery();
+    }
+
+    @Override
+    public long errors() {
+        return errors.sum();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum() * getSampleEvery();
+    }
+
+    @Override
+    public double meanMillis() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : totalNanos.sum() / (double) recorded / 1_000_000;
+    }
+
+    @Override
+    public double maxMillis() {
+        return window(0).maxMs();
+    }
+
+    @Override
+    public synchronized double percentileMillis(double percentile) {
+        tickIfDue();
+        scratch.reset();
+        scratch.add(completeMinutes[0]);
+        scratch.add(slots[slot]);
+        return scratch.getValueAtPercentile(percentile * 100) / 1_000.0;
+    }
+
+    /**
+     * @return the last complete second
+     */
+    synchronized LatencySnapshot lastSecond() {
+        tickIfDue();
+        return lastSecond;
+    }
+
+    /**
+     * @param index index into {@link #WINDOW_MINUTES}
+     */
+    synchronized LatencySnapshot window(int index) {
+        tickIfDue();
+        return windows[index];
+    }
+
+    /**
+     * Drains the recorders, called every second by {@link PerformanceMetrics#tick()}.
+     */
+    synchronized void tick() {
+        long now = clock.getAsLong();
+        double seconds = Math.max(now - lastTick, 1) / 1e9;
+        lastTick = now;
+
+        second.reset();
+        for (Recorder stripe : stripes) {
+            stripe.getIntervalHistogramInto(interval);
+            second.add(interval);
+        }
+        long errorsNow = errors.sum();
+        long newErrors = errorsNow - errorsAtLastTick;
+        errorsAtLastTick = errorsNow;
+        lastSecond = LatencySnapshot.of(second, getSampleEvery(), newErrors, seconds);
+
+        if (now - minuteStart >= MINUTE_NANOS) {
+            rotate(now);
+        }
+        slots[slot].add(second);
+        slotErrors[slot] += newErrors;
+
+        long elapsed = now - minuteStart;
+        for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+            scratch.reset();
+            scratch.add(completeMinutes[i]);
+            scratch.add(slots[slot]);
+            int minutes = Math.min(WINDOW_MINUTES[i], completeSlots);
+            windows[i] = LatencySnapshot.of(scratch, getSampleEvery(), completeErrors[i] + slotErrors[slot],
+                    (minutes * MINUTE_NANOS + elapsed) / 1e9);
+        }
+    }
+
+    /**
+     * Callers hold the lock, so concurrent readers can't both see the tick as due and drain the second twice.
+     */
+    private void tickIfDue() {
+        if (clock.getAsLong() - lastTick >= TICK_NANOS) {
+            tick();
+        }
+    }
+
+    private void rotate(long now) {
+        // skip slots of minutes without any tick (idle timer)
+        long minutes = Math.min((now - minuteStart) / MINUTE_NANOS, SLOTS);
+        for (int i = 0; i < minutes; i++) {
+            slot = (slot + 1) % SLOTS;
+            slots[slot].reset();
+            slotErrors[slot] = 0;
+            completeSlots = Math.min(completeSlots + 1, SLOTS - 1);
+        }
+        minuteStart += (now - minuteStart) / MINUTE_NANOS * MINUTE_NANOS;
+
+        for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+            completeMinutes[i].reset();
+            completeErrors[i] = 0;
+            for (int back = 1; back <= WINDOW_MINUTES[i]; back++) {
+                int previous = Math.floorMod(slot - back, SLOTS);
+                completeMinutes[i].add(slots[previous]);
+                completeErrors[i] += slotErrors[previous];
+            }
+        }
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+    }
+}
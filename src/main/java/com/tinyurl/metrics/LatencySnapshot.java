@@ -0,0 +1,37 @@
+package com.tinyurl.metrics;
+
+import org.HdrHistogram.AbstractHistogram;
+
+/**
+ * Statistics of one operation over an interval (one second, or a 1m / 5m / 15m window).
+ * Counts are scaled by the sampling rate, latencies are in milliseconds.
+ *
+ * @param ratePerSecond calls per second over the interval
+ * @param errorRate     failed calls / calls, 0 if there were none
+ */
+public record LatencySnapshot(long count, long errors, double ratePerSecond, double errorRate, double meanMs,
+                              double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * @param histogram     latencies in microseconds
+     * @param sampleEvery   1 in how many calls the histogram holds
+     * @param errors        failed calls in the interval
+     * @param seconds       length of the interval
+     */
+    static LatencySnapshot of(AbstractHistogram histogram, int sampleEvery, long errors, double seconds) {
+        long count = histogram.getTotalCount() * sampleEvery;
+        if (count == 0 && errors == 0) {
+            return EMPTY;
+        }
+        return new LatencySnapshot(count, errors, seconds > 0 ? count / seconds : 0,
+                count > 0 ? Math.min(1, errors / (double) count) : 0,
+                histogram.getMean() / 1_000,
+                histogram.getValueAtPercentile(50) / 1_000.0,
+                histogram.getValueAtPercentile(90) / 1_000.0,
+                histogram.getValueAtPercentile(99) / 1_000.0,
+                histogram.getValueAtPercentile(99.9) / 1_000.0,
+                histogram.getMaxValue() / 1_000.0);
+    }
+}
@@ -1,7 +1,6 @@
 package com.tinyurl.metrics;
 
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import com.tinyurl.service.HotKeyTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,8 +8,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/metrics")
@@ -18,40 +17,62 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class MetricsController {
 
-    private final MeterRegistry meterRegistry;
     private final PerformanceMetrics performanceMetrics;
+    private final HotKeyTracker hotKeyTracker;
 
     @GetMapping("/summary")
     public Map<String, Object> getMetricsSummary() {
         Map<String, Object> summary = new HashMap<>();
-        meterRegistry.getMeters().stream()
-                .filter(meter -> meter instanceof Timer)
-                .filter(meter -> meter.getId().getName().startsWith("tinyurl."))
-                .forEach(meter -> {
-                    Timer timer = (Timer) meter;
-                    String name = timer.getId().getName().replace("tinyurl.", "");
-
-                    Map<String, Object> timerStats = new HashMap<>();
-                    timerStats.put("count", timer.count());
-                    timerStats.put("meanMs", String.format("%.2f", timer.mean(TimeUnit.MILLISECONDS)));
-                    timerStats.put("maxMs", String.format("%.2f", timer.max(TimeUnit.MILLISECONDS)));
-
-                    // Add percentiles
-                    var snapshot = timer.takeSnapshot();
-                    var percentiles = snapshot.percentileValues();
-                    if (percentiles.length > 0) {
-                        Map<String, String> percentileMap = new HashMap<>();
-                        for (var pv : percentiles) {
-                            percentileMap.put("p" + (int)(pv.percentile() * 100), 
-                                    String.format("%.2f", pv.value(TimeUnit.MILLISECONDS)));
-                        }
-                        timerStats.put("percentiles", percentileMap);
-                    }
-                    summary.put(name, timerStats);
-                });
+        performanceMetrics.timers().forEach((name, timer) -> {
+            Map<String, Object> timerStats = new HashMap<>();
+            timerStats.put("count", timer.count());
+            timerStats.put("errors", timer.errors());
+            timerStats.put("meanMs", String.format("%.2f", timer.meanMillis()));
+            timerStats.put("maxMs", String.format("%.2f", timer.maxMillis()));
+
+            // Add percentiles
+            Map<String, String> percentileMap = new HashMap<>();
+            for (double percentile : PerformanceMetrics.PERCENTILES) {
+                percentileMap.put("p" + (int) (percentile * 100),
+                        String.format("%.2f", timer.percentileMillis(percentile)));
+            }
+            timerStats.put("percentiles", percentileMap);
+            if (timer.getSampleEvery() > 1) {
+                timerStats.put("sampleEvery", timer.getSampleEvery());
+            }
+            summary.put(name, timerStats);
+        });
+
+        Map<String, Object> cacheSummary = new HashMap<>();
+        performanceMetrics.cacheStats().forEach((cacheName, stats) -> {
+            Map<String, Object> cacheStats = new HashMap<>();
+            cacheStats.put("hits", stats.hitCount());
+            cacheStats.put("misses", stats.missCount());
+            cacheStats.put("hitRate", String.format("%.4f", stats.hitRate()));
+            cacheStats.put("evictions", stats.evictionCount());
+            cacheSummary.put(cacheName, cacheStats);
+        });
+        summary.put("caches", cacheSummary);
         return summary;
     }
 
+    /**
+     * Rolling 1m / 5m / 15m windows per operation (metrics.timers.mode=hdr), see {@link MetricsStreamController}
+     * for per-second updates.
+     */
+    @GetMapping("/windows")
+    public Map<String, Map<String, LatencySnapshot>> getWindows() {
+        return performanceMetrics.windows();
+    }
+
+    /**
+     * Top-K short codes on the redirect path, hottest first, and whether they are pinned in the L1.
+     */
+    @GetMapping("/hotkeys")
+    public List<Map<String, Object>> getHotKeys() {
+        return hotKeyTracker.hotKeys();
+    }
+
     @GetMapping("/log")
     public String logMetrics() {
         performanceMetrics.logSummary();
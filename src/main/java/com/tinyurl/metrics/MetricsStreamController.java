@@ -0,0 +1,139 @@
+package com.tinyurl.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Server-sent events with the last second of each operation: throughput, error rate, p50/p99/p999.
+ * <ul>
+ *     <li>One "metrics" event per second, data is operationName → {@link LatencySnapshot}</li>
+ *     <li>Operations default to metrics.stream.operations, ?operations=a,b overrides, ?operations=* streams all</li>
+ *     <li>Events are sent from virtual threads so that a slow client never delays the metrics tick</li>
+ *     <li>A client whose previous event is still being written skips the tick (metrics.stream.skipped), so a stalled
+ *     client holds one virtual thread, not one more per second</li>
+ *     <li>Requires metrics.timers.mode=hdr, micrometer timers have no per-second snapshots</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/metrics")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+@Slf4j
+public class MetricsStreamController {
+
+    private final PerformanceMetrics performanceMetrics;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private Runnable unsubscribe;
+
+    @Value("${metrics.stream.operations:get,post,cache.get,redis.get,findLongUrl,save}")
+    private String defaultOperations = "";
+
+    @Value("${metrics.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000;
+
+    @PostConstruct
+    void subscribe() {
+        unsubscribe = performanceMetrics.onTick(this::publish);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        unsubscribe.run();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        sender.shutdownNow();
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(name = "operations", required = false) String operations) {
+        return register(new SseEmitter(timeoutMs), parseOperations(operations != null ? operations : defaultOperations));
+    }
+
+    SseEmitter register(SseEmitter emitter, Set<String> operations) {
+        Subscriber subscriber = new Subscriber(emitter, operations);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    void publish(Map<String, LatencySnapshot> lastSecond) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.sending().compareAndSet(false, true)) {
+                performanceMetrics.increment("metrics.stream.skipped");
+                continue;
+            }
+            sender.execute(() -> {
+                try {
+                    send(subscriber, lastSecond);
+                } finally {
+                    subscriber.sending().set(false);
+                }
+            });
+        }
+    }
+
+    private void send(Subscriber subscriber, Map<String, LatencySnapshot> lastSecond) {
+        Map<String, LatencySnapshot> data = new LinkedHashMap<>();
+        lastSecond.forEach((operationName, snapshot) -> {
+            if (subscriber.operations().isEmpty() || subscriber.operations().contains(operationName)) {
+                data.put(operationName, snapshot);
+            }
+        });
+        // one subscriber's events are never sent concurrently; a ReentrantLock, not a monitor, since the socket write
+        // blocks and a virtual thread blocked in a synchronized block pins its carrier
+        subscriber.lock().lock();
+        try {
+            subscriber.emitter().send(SseEmitter.event().name("metrics").data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Metrics stream closed: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter().completeWithError(e);
+        } finally {
+            subscriber.lock().unlock();
+        }
+    }
+
+    // empty set = all operations
+    static Set<String> parseOperations(String operations) {
+        if (operations.isBlank() || operations.strip().equals("*")) {
+            return Set.of();
+        }
+        return Arrays.stream(operations.split(","))
+                .map(String::strip)
+                .filter(operation -> !operation.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // sending: an event is being written, set by publish and cleared by the send task
+    private record Subscriber(SseEmitter emitter, Set<String> operations, AtomicBoolean sending, ReentrantLock lock) {
+
+        Subscriber(SseEmitter emitter, Set<String> operations) {
+            this(emitter, operations, new AtomicBoolean(), new ReentrantLock());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.tinyurl.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer {@link Timer} with client-side percentiles, published as tinyurl.{name}, and a counter
+ * tinyurl.{name}.errors. Records every call, no rolling windows.
+ */
+final class MicrometerOperationTimer extends OperationTimer {
+
+    private final Timer timer;
+    private final Counter errors;
+
+    MicrometerOperationTimer(String name, MeterRegistry meterRegistry, double[] percentiles) {
+        super(name, 1);
+        this.timer = Timer.builder("tinyurl." + name)
+                .description("Timer for " + name)
+                .publishPercentiles(percentiles)
+                .register(meterRegistry);
+        this.errors = meterRegistry.counter("tinyurl." + name + ".errors");
+    }
+
+    @Override
+    protected void recordSampled(long durationNanos) {
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void error() {
+        errors.increment();
+    }
+
+    @Override
+    public long count() {
+        return timer.count();
+    }
+
+    @Override
+    public long errors() {
+        return (long) errors.count();
+    }
+
+    @Override
+    public double meanMillis() {
+        return timer.mean(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double maxMillis() {
+        return timer.max(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public double percentileMillis(double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+}
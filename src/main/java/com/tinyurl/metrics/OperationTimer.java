@@ -0,0 +1,111 @@
+package com.tinyurl.metrics;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Pre-resolved timer for one operation, see {@link PerformanceMetrics#timer(String)}.
+ * Resolve it once (e.g. in a field) and time with {@code start()} / {@code stop(start)}:
+ * no map lookup, no {@code Timer.Sample} or lambda allocation per call.
+ * <ul>
+ *     <li>Sampled timers record 1 in sampleEvery calls; an unsampled {@code start()} doesn't even read the clock</li>
+ *     <li>Counts and totals are scaled back up by sampleEvery</li>
+ * </ul>
+ */
+public abstract class OperationTimer {
+
+    /**
+     * Returned by {@link #start()} for calls that aren't recorded.
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final String name;
+    private final int sampleEvery;
+    private final int sampleMask;
+
+    protected OperationTimer(String name, int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("Timer " + name + ": sample rate must be a power of two, got " + sampleEvery);
+        }
+        this.name = name;
+        this.sampleEvery = sampleEvery;
+        this.sampleMask = sampleEvery - 1;
+    }
+
+    /**
+     * @return the start time to pass to {@link #stop(long)}, or {@link #NOT_SAMPLED}
+     */
+    public long start() {
+        return isSampled() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    public void stop(long startNanos) {
+        if (startNanos != NOT_SAMPLED) {
+            recordSampled(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record an already measured duration, e.g. for asynchronous operations.
+     */
+    public void record(long durationNanos) {
+        if (isSampled()) {
+            recordSampled(durationNanos);
+        }
+    }
+
+    public <T> T record(Supplier<T> operation) {
+        long start = start();
+        try {
+            return operation.get();
+        } catch (RuntimeException | Error e) {
+            error(e);
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * Count one failed call, e.g. an exception or a 5xx. Errors are never sampled.
+     */
+    public abstract void error();
+
+    /**
+     * Count a call that failed with the exception, unless it's a client error (4xx {@link ResponseStatusException}).
+     */
+    public void error(Throwable failure) {
+        if (!(failure instanceof ResponseStatusException e && e.getStatusCode().is4xxClientError())) {
+            error();
+        }
+    }
+
+    public abstract long count();
+
+    public abstract long errors();
+
+    public abstract double meanMillis();
+
+    public abstract double maxMillis();
+
+    /**
+     * @param percentile between 0 and 1, e.g. 0.99
+     */
+    public abstract double percentileMillis(double percentile);
+
+    protected abstract void recordSampled(long durationNanos);
+
+    private boolean isSampled() {
+        return sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+}
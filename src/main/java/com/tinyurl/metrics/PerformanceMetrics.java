@@ -1,26 +1,77 @@
 package com.tinyurl.metrics;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
+/**
+ * Timers, counters and gauges published as tinyurl.*
+ * <ul>
+ *     <li>metrics.timers.mode=micrometer: one Micrometer Timer per operation with client-side percentiles</li>
+ *     <li>metrics.timers.mode=hdr (default): striped HdrHistogram recorders drained every second into rolling
+ *     1m / 5m / 15m windows, see {@link HdrOperationTimer}</li>
+ *     <li>Hot paths resolve an {@link OperationTimer} once with {@link #timer(String)},
+ *     everything else goes through {@link TimedOperation} or the time* methods (one map lookup per call)</li>
+ * </ul>
+ */
 @Component
 @Slf4j
 public class PerformanceMetrics {
 
+    static final double[] PERCENTILES = {0.5, 0.75, 0.95, 0.99};
+
     private final MeterRegistry meterRegistry;
-    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, OperationTimer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @Value("${metrics.timers.mode:hdr}")
+    private String timerMode = "hdr";
+
+    // hdr only, "operation:N,..." records 1 in N calls of the operation
+    @Value("${metrics.timers.sample-every:}")
+    private String sampleEvery = "";
+
+    // hdr only, 0 = one stripe per available processor
+    @Value("${metrics.timers.stripes:0}")
+    private int timerStripes;
+
+    private final List<Consumer<Map<String, LatencySnapshot>>> tickListeners = new CopyOnWriteArrayList<>();
 
     public PerformanceMetrics(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
     }
 
+    /**
+     * Resolve the timer of an operation, to keep in a field on hot paths.
+     *
+     * @param operationName
+     * @return the timer published as tinyurl.{operationName}
+     */
+    public OperationTimer timer(String operationName) {
+        OperationTimer timer = timers.get(operationName);
+        return timer != null ? timer : timers.computeIfAbsent(operationName, this::createTimer);
+    }
+
     /**
      * Time an operation and record the metric
      *
@@ -28,8 +79,16 @@ public class PerformanceMetrics {
      * @param operation
      */
     public void time(String operationName, Runnable operation) {
-        Timer timer = getOrCreateTimer(operationName);
-        timer.record(operation);
+        OperationTimer timer = timer(operationName);
+        long start = timer.start();
+        try {
+            operation.run();
+        } catch (RuntimeException | Error e) {
+            timer.error(e);
+            throw e;
+        } finally {
+            timer.stop(start);
+        }
     }
 
     /**
@@ -41,8 +100,7 @@ public class PerformanceMetrics {
      * @return
      */
     public <T> T timeAndReturn(String operationName, Supplier<T> operation) {
-        Timer timer = getOrCreateTimer(operationName);
-        return timer.record(operation);
+        return timer(operationName).record(operation);
     }
 
     /**
@@ -55,56 +113,199 @@ public class PerformanceMetrics {
      * @throws Exception
      */
     public <T> T timeCallable(String operationName, Callable<T> operation) throws Exception {
-        Timer timer = getOrCreateTimer(operationName);
-        Timer.Sample sample = Timer.start(meterRegistry);
+        OperationTimer timer = timer(operationName);
+        long start = timer.start();
         try {
             return operation.call();
+        } catch (Exception | Error e) {
+            timer.error(e);
+            throw e;
         } finally {
-            sample.stop(timer);
+            timer.stop(start);
         }
     }
 
     /**
-     * Start a timer sample for manual timing.
+     * Record an already measured duration, e.g. for asynchronous operations.
      *
-     * @return
+     * @param operationName
+     * @param durationNanos
+     */
+    public void record(String operationName, long durationNanos) {
+        timer(operationName).record(durationNanos);
+    }
+
+    /**
+     * @return operationName → timer, for the summary endpoints
      */
-    public Timer.Sample start() {
-        return Timer.start(meterRegistry);
+    public Map<String, OperationTimer> timers() {
+        return Collections.unmodifiableMap(timers);
     }
 
     /**
-     * Stop a timer sample and record the duration
+     * Rolling windows of all hdr timers, computed on the last tick (empty in micrometer mode).
      *
-     * @param sample
-     * @param operationName
+     * @return operationName → "1m" / "5m" / "15m" → snapshot
+     */
+    public Map<String, Map<String, LatencySnapshot>> windows() {
+        Map<String, Map<String, LatencySnapshot>> windows = new TreeMap<>();
+        timers.forEach((operationName, timer) -> {
+            if (timer instanceof HdrOperationTimer hdrTimer) {
+                Map<String, LatencySnapshot> byWindow = new LinkedHashMap<>();
+                for (int i = 0; i < HdrOperationTimer.WINDOW_MINUTES.length; i++) {
+                    byWindow.put(HdrOperationTimer.WINDOW_MINUTES[i] + "m", hdrTimer.window(i));
+                }
+                windows.put(operationName, byWindow);
+            }
+        });
+        return windows;
+    }
+
+    /**
+     * Call the listener after every tick with the last second of each hdr timer.
+     * Listeners run on the scheduler thread and must not block.
+     *
+     * @param listener
+     * @return removes the listener
      */
-    public void stop(Timer.Sample sample, String operationName) {
-        Timer timer = getOrCreateTimer(operationName);
-        sample.stop(timer);
+    public Runnable onTick(Consumer<Map<String, LatencySnapshot>> listener) {
+        tickListeners.add(listener);
+        return () -> tickListeners.remove(listener);
     }
 
-    private Timer getOrCreateTimer(String operationName) {
-        return timers.computeIfAbsent(operationName, name ->
-                Timer.builder("tinyurl." + name)
-                        .description("Timer for " + name)
-                        .publishPercentiles(0.5, 0.75, 0.95, 0.99)
-                        .register(meterRegistry));
+    /**
+     * Drain the hdr timers once a second, so that windows are current and reads only return snapshots.
+     */
+    @Scheduled(fixedRate = 1_000)
+    public void tick() {
+        Map<String, LatencySnapshot> lastSecond = new TreeMap<>();
+        timers.forEach((operationName, timer) -> {
+            if (timer instanceof HdrOperationTimer hdrTimer) {
+                hdrTimer.tick();
+                lastSecond.put(operationName, hdrTimer.lastSecond());
+            }
+        });
+        if (lastSecond.isEmpty()) {
+            return;
+        }
+        Map<String, LatencySnapshot> snapshot = Collections.unmodifiableMap(lastSecond);
+        for (Consumer<Map<String, LatencySnapshot>> listener : tickListeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                log.warn("Metrics tick listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Increment a counter named tinyurl.{counterName}.
+     *
+     * @param counterName
+     */
+    public void increment(String counterName) {
+        increment(counterName, 1);
+    }
+
+    /**
+     * Increment a counter named tinyurl.{counterName} by the given amount.
+     *
+     * @param counterName
+     * @param amount
+     */
+    public void increment(String counterName, long amount) {
+        meterRegistry.counter("tinyurl." + counterName).increment(amount);
+    }
+
+    /**
+     * Register a gauge named tinyurl.{gaugeName} that samples the given object on every scrape.
+     *
+     * @param gaugeName
+     * @param stateObject
+     * @param valueFunction
+     * @param <T>
+     */
+    public <T> void gauge(String gaugeName, T stateObject, ToDoubleFunction<T> valueFunction) {
+        Gauge.builder("tinyurl." + gaugeName, stateObject, valueFunction)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register a counter named tinyurl.{counterName} that reads a monotonically increasing count on every scrape.
+     *
+     * @param counterName
+     * @param stateObject
+     * @param countFunction
+     * @param <T>
+     */
+    public <T> void functionCounter(String counterName, T stateObject, ToDoubleFunction<T> countFunction) {
+        FunctionCounter.builder("tinyurl." + counterName, stateObject, countFunction)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register hit/miss/eviction meters for an in-process cache.
+     * Meters are published as cache.* with cache=tinyurl.{cacheName}.
+     *
+     * @param cacheName
+     * @param cache a cache built with recordStats()
+     * @return the same cache, for chaining
+     */
+    public <K, V, C extends Cache<K, V>> C monitorCache(String cacheName, C cache) {
+        caches.put(cacheName, cache);
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "tinyurl." + cacheName);
+    }
+
+    /**
+     * Current statistics of all monitored in-process caches.
+     *
+     * @return cacheName → stats
+     */
+    public Map<String, CacheStats> cacheStats() {
+        Map<String, CacheStats> stats = new HashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+
+    private OperationTimer createTimer(String operationName) {
+        if (!"hdr".equalsIgnoreCase(timerMode)) {
+            return new MicrometerOperationTimer(operationName, meterRegistry, PERCENTILES);
+        }
+        int stripes = timerStripes > 0 ? timerStripes : Runtime.getRuntime().availableProcessors();
+        HdrOperationTimer timer = new HdrOperationTimer(operationName, sampleEvery(operationName), stripes,
+                System::nanoTime);
+        timer.register(meterRegistry, PERCENTILES);
+        return timer;
+    }
+
+    private int sampleEvery(String operationName) {
+        for (String entry : sampleEvery.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator > 0 && entry.substring(0, separator).strip().equals(operationName)) {
+                return Integer.parseInt(entry.substring(separator + 1).strip());
+            }
+        }
+        return 1;
     }
 
     public void logSummary() {
         log.info("=== Performance Metrics Summary ===");
-        timers.forEach((meterName, timer) -> {
-            var snapshot = timer.takeSnapshot();
-            log.info("Operation: {} | Count: {} | Mean: {}ms | Max: {}ms | p50: {}ms | p75: {}ms | p95: {}ms | p99: {}ms",
-                    meterName,
-                    timer.count(),
-                    String.format("%.2f", timer.mean(TimeUnit.MILLISECONDS)),
-                    String.format("%.2f", timer.max(TimeUnit.MILLISECONDS)),
-                    String.format("%.2f", snapshot.percentileValues()[0].value(TimeUnit.MILLISECONDS)),
-                    String.format("%.2f", snapshot.percentileValues()[1].value(TimeUnit.MILLISECONDS)),
-                    String.format("%.2f", snapshot.percentileValues()[2].value(TimeUnit.MILLISECONDS)),
-                    String.format("%.2f", snapshot.percentileValues()[3].value(TimeUnit.MILLISECONDS)));
-        });
+        timers.forEach((operationName, timer) -> log.info(
+                "Operation: {} | Count: {} | Mean: {}ms | Max: {}ms | p50: {}ms | p75: {}ms | p95: {}ms | p99: {}ms",
+                operationName,
+                timer.count(),
+                String.format("%.2f", timer.meanMillis()),
+                String.format("%.2f", timer.maxMillis()),
+                String.format("%.2f", timer.percentileMillis(0.5)),
+                String.format("%.2f", timer.percentileMillis(0.75)),
+                String.format("%.2f", timer.percentileMillis(0.95)),
+                String.format("%.2f", timer.percentileMillis(0.99))));
+        cacheStats().forEach((cacheName, stats) ->
+                log.info("Cache: {} | Hits: {} | Misses: {} | HitRate: {} | Evictions: {}",
+                        cacheName,
+                        stats.hitCount(),
+                        stats.missCount(),
+                        String.format("%.4f", stats.hitRate()),
+                        stats.evictionCount()));
     }
 }
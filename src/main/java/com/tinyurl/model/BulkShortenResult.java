@@ -0,0 +1,28 @@
+package com.tinyurl.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One line of the bulk shorten response, in the order of the request.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkShortenResult {
+
+    public enum Status {
+        EXISTING, CREATED, FAILED
+    }
+
+    private long index;
+    private String longUrl;
+    private String shortUrl;
+    private Status status;
+    private String error;
+
+    public static BulkShortenResult failed(long index, String longUrl, String error) {
+        return new BulkShortenResult(index, longUrl, null, Status.FAILED, error);
+    }
+}
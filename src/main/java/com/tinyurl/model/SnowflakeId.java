@@ -3,6 +3,10 @@ package com.tinyurl.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+
 @Data
 @AllArgsConstructor
 public class SnowflakeId {
@@ -11,4 +15,19 @@ public class SnowflakeId {
     private long nodeId;
     private String host;
 
+    /**
+     * @param id a Snowflake id
+     * @return the epoch millis the id was generated at
+     */
+    public static long issuedAt(long id) {
+        return issuedAt(id, SNOWFLAKE_EPOCH_MS);
+    }
+
+    /**
+     * @param epochMs epoch millis the id's timestamp counts from
+     */
+    public static long issuedAt(long id, long epochMs) {
+        return (id >>> (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS)) + epochMs;
+    }
+
 }
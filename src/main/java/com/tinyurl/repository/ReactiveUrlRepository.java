@@ -0,0 +1,83 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.exception.LongUrlHashCollisionException;
+import com.tinyurl.utils.LongUrlHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import static com.tinyurl.ApplicationConstants.INSERT_URLS;
+import static com.tinyurl.ApplicationConstants.SEARCH_LONG_URL;
+import static com.tinyurl.ApplicationConstants.SELECT_LONG_URL;
+
+/**
+ * R2DBC counterpart of {@link UrlRepository} for the reactive serving stack, with the same queries.
+ * Only the lookups needed by GET and POST /shorten; everything else stays on JDBC.
+ */
+@Repository
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUrlRepository {
+
+    private final DatabaseClient databaseClient;
+    private final LongUrlHasher longUrlHasher;
+
+    /**
+     * @param shortUrl The short code (primary key)
+     * @return The long_url, or empty if the short_url does not exist
+     */
+    public Mono<String> findLongUrl(String shortUrl) {
+        return databaseClient.sql(SELECT_LONG_URL)
+                .bind(0, shortUrl)
+                .map(row -> row.get(0, String.class))
+                .first();
+    }
+
+    /**
+     * @param shortUrl encoded url
+     * @param longUrl  normalized url for which the encoding was done
+     * @return true if inserted, false if a row with this short_url already exists
+     */
+    public Mono<Boolean> save(String shortUrl, String longUrl) {
+        log.debug("saving shortUrl={}, longUrl={}", shortUrl, longUrl);
+        return databaseClient.sql(INSERT_URLS)
+                .bind(0, shortUrl)
+                .bind(1, longUrl)
+                .bind(2, longUrlHasher.hash(longUrl))
+                .fetch()
+                .rowsUpdated()
+                .map(rowsAffected -> rowsAffected == 1);
+    }
+
+    /**
+     * @param longUrl The normalized long URL
+     * @return shortUrl if the long URL is present, empty otherwise; {@link LongUrlHashCollisionException} if another
+     * long url holds its hash and indexed prefix, see {@link UrlRepository#findShortUrlByLongUrl(String)}
+     */
+    public Mono<String> findShortUrlByLongUrl(String longUrl) {
+        long longUrlHash = longUrlHasher.hash(longUrl);
+        return databaseClient.sql(SEARCH_LONG_URL)
+                .bind(0, longUrlHash)
+                .map(row -> new String[]{row.get("short_url", String.class), row.get("long_url", String.class)})
+                .all()
+                .collectList()
+                .flatMap(rows -> {
+                    for (String[] row : rows) {
+                        // rows from before long_url_hash may hold the url as sent, compare the normalized form
+                        if (longUrl.equals(longUrlHasher.normalize(row[1]))) {
+                            return Mono.just(row[0]);
+                        }
+                    }
+                    for (String[] row : rows) {
+                        if (UrlRepository.sharesIndexKey(row[1], longUrl)) {
+                            return Mono.error(new LongUrlHashCollisionException(longUrl, longUrlHash));
+                        }
+                    }
+                    return Mono.empty();
+                });
+    }
+}
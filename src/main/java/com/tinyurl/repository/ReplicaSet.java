@@ -0,0 +1,146 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.metrics.OperationTimer;
+import com.tinyurl.metrics.PerformanceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The primary of one shard and its read replicas.
+ * <ul>
+ *     <li>Writes use {@link #primary()}; {@link #read} runs a query on the replica with the fewest queries in flight
+ *     (ties rotate), or on the primary when there are no replicas</li>
+ *     <li>A replica whose query fails to connect or times out is skipped for replica.down-ms, and the query is
+ *     retried on the primary</li>
+ *     <li>With replicas, reads of every pool are timed as tinyurl.db.{pool} with a tinyurl.db.{pool}.in-flight gauge</li>
+ * </ul>
+ */
+@Slf4j
+public class ReplicaSet {
+
+    private final JdbcTemplate primary;
+    private final Pool primaryPool;
+    private final List<Pool> replicas;
+    private final long downNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private static final class Pool {
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private final OperationTimer timer;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // System.nanoTime() until which the pool is skipped, 0 when healthy
+        private volatile long downUntil;
+
+        private Pool(String name, JdbcTemplate jdbcTemplate, PerformanceMetrics performanceMetrics) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+            this.timer = performanceMetrics.timer("db." + name);
+            performanceMetrics.gauge("db." + name + ".in-flight", inFlight, AtomicInteger::get);
+        }
+    }
+
+    private ReplicaSet(JdbcTemplate primary, Pool primaryPool, List<Pool> replicas, long downMs) {
+        this.primary = primary;
+        this.primaryPool = primaryPool;
+        this.replicas = replicas;
+        this.downNanos = TimeUnit.MILLISECONDS.toNanos(downMs);
+    }
+
+    public static ReplicaSet primaryOnly(JdbcTemplate primary) {
+        return new ReplicaSet(primary, null, List.of(), 0);
+    }
+
+    /**
+     * @param name     pool name prefix, e.g. shard0: pools are named shard0.primary, shard0.replica0, ...
+     * @param replicas read-only JdbcTemplates of the primary's replicas
+     * @param downMs   how long a failing replica is skipped
+     */
+    public static ReplicaSet withReplicas(String name, JdbcTemplate primary, List<JdbcTemplate> replicas,
+                                          PerformanceMetrics performanceMetrics, long downMs) {
+        if (replicas.isEmpty()) {
+            return primaryOnly(primary);
+        }
+        List<Pool> pools = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            pools.add(new Pool(name + ".replica" + i, replicas.get(i), performanceMetrics));
+        }
+        return new ReplicaSet(primary, new Pool(name + ".primary", primary, performanceMetrics), List.copyOf(pools), downMs);
+    }
+
+    public JdbcTemplate primary() {
+        return primary;
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Run a read on the least loaded healthy replica, or on the primary.
+     * The query may run twice (replica, then primary) if the replica fails.
+     */
+    public <T> T read(Function<JdbcTemplate, T> query) {
+        Pool replica = pickReplica();
+        if (replica == null) {
+            return readPrimary(query);
+        }
+        try {
+            return run(replica, query);
+        } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+            replica.downUntil = System.nanoTime() + downNanos;
+            log.warn("Replica {} failed, skipping it for {}ms: {}", replica.name,
+                    TimeUnit.NANOSECONDS.toMillis(downNanos), e.getMessage());
+            return readPrimary(query);
+        }
+    }
+
+    /**
+     * Run a read on the primary, e.g. for rows that may not have reached the replicas yet.
+     */
+    public <T> T readPrimary(Function<JdbcTemplate, T> query) {
+        return primaryPool == null ? query.apply(primary) : run(primaryPool, query);
+    }
+
+    private Pool pickReplica() {
+        int count = replicas.size();
+        if (count == 0) {
+            return null;
+        }
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        Pool best = null;
+        for (int i = 0; i < count; i++) {
+            Pool pool = replicas.get((start + i) % count);
+            if (pool.downUntil != 0 && pool.downUntil - now > 0) {
+                continue;
+            }
+            if (best == null || pool.inFlight.get() < best.inFlight.get()) {
+                best = pool;
+            }
+        }
+        return best;
+    }
+
+    private static <T> T run(Pool pool, Function<JdbcTemplate, T> query) {
+        pool.inFlight.incrementAndGet();
+        long start = pool.timer.start();
+        try {
+            return query.apply(pool.jdbcTemplate);
+        } catch (RuntimeException e) {
+            pool.timer.error(e);
+            throw e;
+        } finally {
+            pool.timer.stop(start);
+            pool.inFlight.decrementAndGet();
+        }
+    }
+}
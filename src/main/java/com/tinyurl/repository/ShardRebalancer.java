@@ -0,0 +1,264 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.utils.LongUrlHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.tinyurl.ApplicationConstants.ADD_CLICKS;
+import static com.tinyurl.ApplicationConstants.DELETE_URLS;
+import static com.tinyurl.ApplicationConstants.DELETE_URL_DEDUP;
+import static com.tinyurl.ApplicationConstants.INSERT_URLS_WITH_STATS_MULTI_ROW;
+import static com.tinyurl.ApplicationConstants.INSERT_URL_DEDUP_MULTI_ROW;
+import static com.tinyurl.ApplicationConstants.SELECT_CLICK_COUNTS_FOR_UPDATE;
+import static com.tinyurl.ApplicationConstants.SELECT_LONG_URLS;
+import static com.tinyurl.ApplicationConstants.SELECT_URLS_PAGE;
+import static com.tinyurl.ApplicationConstants.SELECT_URL_DEDUP_PAGE;
+
+/**
+ * Moves rows to the shard {@link ShardRouter} assigns them to, after shards were added
+ * (sharding.rebalance.enabled=true, see {@code make rebalance}).
+ * <ul>
+ *     <li>Walks tiny_urls of every shard in primary key pages of sharding.rebalance.batch-size rows</li>
+ *     <li>Misplaced rows are copied to their shard with click_count and created_at (INSERT IGNORE, so an interrupted
+ *     run can simply be restarted). Only rows the target then holds with the same long url are deleted from the old
+ *     one; clicks flushed to the old row since its page was read are added to the new one</li>
+ *     <li>Rows from before long_url_hash get the hash of their normalized url; if another row on the target already
+ *     holds it they are copied without one</li>
+ *     <li>Every row gets its url_dedup entry on the shard of its long url hash, which also builds the index when
+ *     going from one database to several; misplaced url_dedup rows are moved the same way</li>
+ * </ul>
+ * Lookups route to the new shard as soon as the application runs with the new shard list, so rows not moved yet
+ * are misses until their page is done, and clicks flushed to the new shard for them in the meantime are lost.
+ * Run it with the new shard list right after adding shards, ideally while traffic is low.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ShardRebalancer {
+
+    private final ShardRouter shardRouter;
+    private final LongUrlHasher longUrlHasher;
+
+    @Value("${sharding.rebalance.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sharding.rebalance.batch-size:1000}")
+    private int batchSize = 1000;
+
+    public record Result(long urlsMoved, long dedupRowsWritten, long dedupRowsMoved) {
+    }
+
+    private record Row(String shortUrl, String longUrl, long longUrlHash, long clickCount, Timestamp createdAt) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebalance() {
+        if (enabled) {
+            Thread.ofVirtual().name("shard-rebalancer").start(this::rebalance);
+        }
+    }
+
+    public Result rebalance() {
+        long start = System.nanoTime();
+        long urlsMoved = 0;
+        long dedupRowsWritten = 0;
+        long dedupRowsMoved = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            long[] counts = rebalanceUrls(shard);
+            urlsMoved += counts[0];
+            dedupRowsWritten += counts[1];
+        }
+        if (shardRouter.isSharded()) {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                dedupRowsMoved += rebalanceDedupRows(shard);
+            }
+        }
+        Result result = new Result(urlsMoved, dedupRowsWritten, dedupRowsMoved);
+        log.info("Rebalanced {} shards in {}ms: {}", shardRouter.shardCount(), (System.nanoTime() - start) / 1_000_000, result);
+        return result;
+    }
+
+    // returns {rows moved, url_dedup rows written}
+    private long[] rebalanceUrls(int shard) {
+        JdbcTemplate source = shardRouter.shard(shard);
+        long moved = 0;
+        long indexed = 0;
+        String after = "";
+        while (true) {
+            List<Row> page = source.query(SELECT_URLS_PAGE, (rs, rowNum) -> {
+                String longUrl = rs.getString("long_url");
+                // rows from before long_url_hash: hashed like new rows, from the normalized url
+                long longUrlHash = rs.getObject("long_url_hash") != null ? rs.getLong("long_url_hash")
+                        : longUrlHasher.hash(longUrlHasher.normalize(longUrl));
+                return new Row(rs.getString("short_url"), longUrl, longUrlHash, rs.getLong("click_count"),
+                        rs.getTimestamp("created_at"));
+            }, after, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            after = page.getLast().shortUrl();
+
+            Map<Integer, List<Row>> misplaced = new HashMap<>();
+            for (Row row : page) {
+                int target = shardRouter.shardOfCode(row.shortUrl());
+                if (target != shard) {
+                    misplaced.computeIfAbsent(target, key -> new ArrayList<>()).add(row);
+                }
+            }
+            for (Map.Entry<Integer, List<Row>> target : misplaced.entrySet()) {
+                moved += moveRows(source, shardRouter.shard(target.getKey()), target.getValue());
+            }
+            if (shardRouter.isSharded()) {
+                indexed += writeDedupRows(page);
+            }
+        }
+        return new long[]{moved, indexed};
+    }
+
+    /**
+     * Copies rows to their shard, then deletes the ones the target verifiably holds and carries over the clicks
+     * flushed to the source since the page was read.
+     *
+     * @return number of rows moved
+     */
+    private long moveRows(JdbcTemplate source, JdbcTemplate target, List<Row> rows) {
+        copyRows(target, rows, true);
+        Set<String> copied = copiedRows(target, rows);
+        if (copied.size() < rows.size()) {
+            // another row holds the long_url_hash on the target (the url was stored twice before dedup by hash):
+            // copied without one, like the backfill leaves it
+            copyRows(target, rows.stream().filter(row -> !copied.contains(row.shortUrl())).toList(), false);
+            copied.addAll(copiedRows(target, rows));
+        }
+        if (copied.size() < rows.size()) {
+            log.warn("Left {} rows on their old shard, their short_url holds another url on the new one: {}",
+                    rows.size() - copied.size(), rows.stream().map(Row::shortUrl).filter(code -> !copied.contains(code)).toList());
+        }
+        if (copied.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Long> clickCounts = deleteRows(source, copied);
+        List<Object[]> clicks = new ArrayList<>();
+        for (Row row : rows) {
+            long delta = clickCounts.getOrDefault(row.shortUrl(), row.clickCount()) - row.clickCount();
+            if (delta > 0) {
+                clicks.add(new Object[]{delta, row.shortUrl()});
+            }
+        }
+        if (!clicks.isEmpty()) {
+            target.batchUpdate(ADD_CLICKS, clicks);
+        }
+        return clickCounts.size();
+    }
+
+    private static void copyRows(JdbcTemplate target, List<Row> rows, boolean withLongUrlHash) {
+        List<Object> args = new ArrayList<>(rows.size() * 5);
+        for (Row row : rows) {
+            args.add(row.shortUrl());
+            args.add(row.longUrl());
+            args.add(withLongUrlHash ? row.longUrlHash() : null);
+            args.add(row.clickCount());
+            args.add(row.createdAt());
+        }
+        target.update(INSERT_URLS_WITH_STATS_MULTI_ROW + UrlRepository.placeholders("(?, ?, ?, ?, ?)", rows.size()),
+                args.toArray());
+    }
+
+    // short urls the target holds with the same long url, i.e. copied now or by an interrupted run
+    private static Set<String> copiedRows(JdbcTemplate target, List<Row> rows) {
+        Map<String, String> longUrls = new HashMap<>();
+        for (Row row : rows) {
+            longUrls.put(row.shortUrl(), row.longUrl());
+        }
+        Set<String> copied = new HashSet<>();
+        target.query(String.format(SELECT_LONG_URLS, UrlRepository.placeholders("?", rows.size())),
+                (RowCallbackHandler) rs -> {
+                    if (rs.getString("long_url").equals(longUrls.get(rs.getString("short_url")))) {
+                        copied.add(rs.getString("short_url"));
+                    }
+                }, longUrls.keySet().toArray());
+        return copied;
+    }
+
+    /**
+     * Deletes rows in one transaction with the locking read of their final click_count, so clicks still flushed to
+     * the source (instances running with the old shard list) either make it into the count or fail to find the row.
+     *
+     * @return shortUrl → click_count at deletion
+     */
+    private static Map<String, Long> deleteRows(JdbcTemplate source, Collection<String> shortUrls) {
+        Object[] args = shortUrls.toArray();
+        String placeholders = UrlRepository.placeholders("?", args.length);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(
+                Objects.requireNonNull(source.getDataSource())));
+        return transaction.execute(status -> {
+            Map<String, Long> clickCounts = new HashMap<>();
+            source.query(String.format(SELECT_CLICK_COUNTS_FOR_UPDATE, placeholders),
+                    (RowCallbackHandler) rs -> {
+                        clickCounts.put(rs.getString("short_url"), rs.getLong("click_count"));
+                    }, args);
+            source.update(String.format(DELETE_URLS, placeholders), args);
+            return clickCounts;
+        });
+    }
+
+    private long writeDedupRows(List<Row> rows) {
+        Map<Integer, List<Object>> argsByShard = new HashMap<>();
+        for (Row row : rows) {
+            List<Object> args = argsByShard.computeIfAbsent(shardRouter.shardOfUrlHash(row.longUrlHash()),
+                    shard -> new ArrayList<>());
+            args.add(row.longUrlHash());
+            args.add(row.longUrl());
+            args.add(row.shortUrl());
+        }
+        long written = 0;
+        for (Map.Entry<Integer, List<Object>> shard : argsByShard.entrySet()) {
+            written += shardRouter.shard(shard.getKey()).update(INSERT_URL_DEDUP_MULTI_ROW
+                    + UrlRepository.placeholders("(?, ?, ?)", shard.getValue().size() / 3), shard.getValue().toArray());
+        }
+        return written;
+    }
+
+    private long rebalanceDedupRows(int shard) {
+        JdbcTemplate source = shardRouter.shard(shard);
+        long moved = 0;
+        String after = "";
+        while (true) {
+            List<Row> page = source.query(SELECT_URL_DEDUP_PAGE, (rs, rowNum) -> new Row(rs.getString("short_url"),
+                    rs.getString("long_url"), rs.getLong("long_url_hash"), 0, null), after, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            after = page.getLast().shortUrl();
+            List<Row> misplaced = page.stream()
+                    .filter(row -> shardRouter.shardOfUrlHash(row.longUrlHash()) != shard)
+                    .toList();
+            if (!misplaced.isEmpty()) {
+                writeDedupRows(misplaced);
+                source.update(String.format(DELETE_URL_DEDUP, UrlRepository.placeholders("?", misplaced.size())),
+                        misplaced.stream().map(Row::shortUrl).toArray());
+                moved += misplaced.size();
+            }
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,140 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.utils.Hashing;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Maps short codes and long url hashes to one of N MySQL shards with a consistent hash ring.
+ * <ul>
+ *     <li>tiny_urls rows live on the shard of their short code</li>
+ *     <li>url_dedup rows (long url hash → short code, for dedup lookups) live on the shard of the long url hash</li>
+ *     <li>Each shard owns virtualNodes points on the ring, derived from its index only: adding shard N moves about
+ *     1/(N+1) of the rows, all of them to the new shard (see {@link ShardRebalancer})</li>
+ *     <li>With a single shard everything routes to it and url_dedup is not used</li>
+ *     <li>Each shard is a {@link ReplicaSet}: writes go to {@link #shard(int)}, reads may use {@link #reads(int)}</li>
+ * </ul>
+ */
+public class ShardRouter {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final List<ReplicaSet> replicaSets;
+    private final List<JdbcTemplate> shards;
+    // ring points sorted by hash, and the shard owning each
+    private final long[] ringHashes;
+    private final int[] ringShards;
+
+    private ShardRouter(List<ReplicaSet> replicaSets, int virtualNodes) {
+        if (replicaSets.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.replicaSets = List.copyOf(replicaSets);
+        this.shards = replicaSets.stream().map(ReplicaSet::primary).toList();
+        long[][] points = new long[shards.size() * virtualNodes][];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                points[shard * virtualNodes + node] = new long[]{Hashing.mix(((long) shard << 32) | node), shard};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        this.ringHashes = new long[points.length];
+        this.ringShards = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ringHashes[i] = points[i][0];
+            ringShards[i] = (int) points[i][1];
+        }
+    }
+
+    public static ShardRouter single(JdbcTemplate jdbcTemplate) {
+        return new ShardRouter(List.of(ReplicaSet.primaryOnly(jdbcTemplate)), 1);
+    }
+
+    /**
+     * @param shards       shard i is shards.get(i); only ever append to this list
+     * @param virtualNodes ring points per shard, more points spread rows more evenly
+     */
+    public static ShardRouter consistentHash(List<JdbcTemplate> shards, int virtualNodes) {
+        return new ShardRouter(shards.stream().map(ReplicaSet::primaryOnly).toList(), virtualNodes);
+    }
+
+    /**
+     * Like {@link #consistentHash(List, int)}, with replicas: shard i is replicaSets.get(i).
+     */
+    public static ShardRouter withReplicaSets(List<ReplicaSet> replicaSets, int virtualNodes) {
+        return new ShardRouter(replicaSets, virtualNodes);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public JdbcTemplate shard(int shard) {
+        return shards.get(shard);
+    }
+
+    public List<JdbcTemplate> shards() {
+        return shards;
+    }
+
+    /**
+     * @return the primary and read replicas of a shard
+     */
+    public ReplicaSet reads(int shard) {
+        return replicaSets.get(shard);
+    }
+
+    public boolean hasReplicas() {
+        return replicaSets.stream().anyMatch(ReplicaSet::hasReplicas);
+    }
+
+    /**
+     * @return index of the shard holding the tiny_urls row of the code
+     */
+    public int shardOfCode(CharSequence shortUrl) {
+        return locate(Hashing.fnv1aMix(shortUrl));
+    }
+
+    /**
+     * @return index of the shard holding the url_dedup rows of the long url hash
+     */
+    public int shardOfUrlHash(long longUrlHash) {
+        return locate(Hashing.mix(longUrlHash));
+    }
+
+    /**
+     * Split keys by shard, keeping their order within each shard.
+     *
+     * @return shard index → keys
+     */
+    public <T> Map<Integer, List<T>> partition(Collection<T> keys, ToIntFunction<T> shardOf) {
+        Map<Integer, List<T>> byShard = new LinkedHashMap<>();
+        for (T key : keys) {
+            byShard.computeIfAbsent(shardOf.applyAsInt(key), shard -> new ArrayList<>()).add(key);
+        }
+        return byShard;
+    }
+
+    // first ring point at or after the hash, wrapping around
+    private int locate(long hash) {
+        if (shards.size() == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringShards[index == ringHashes.length ? 0 : index];
+    }
+}
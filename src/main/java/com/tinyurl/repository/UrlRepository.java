@@ -1,83 +1,584 @@
 package com.tinyurl.repository;
 
 import com.tinyurl.ApplicationConstants;
+import com.tinyurl.exception.LongUrlHashCollisionException;
 import com.tinyurl.metrics.TimedOperation;
+import com.tinyurl.model.SnowflakeId;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.tinyurl.ApplicationConstants.DELETE_URL_DEDUP;
+import static com.tinyurl.ApplicationConstants.INSERT_URLS_MULTI_ROW;
+import static com.tinyurl.ApplicationConstants.LONG_URL_INDEX_PREFIX;
+import static com.tinyurl.ApplicationConstants.INSERT_URL_DEDUP_MULTI_ROW;
 import static com.tinyurl.ApplicationConstants.SEARCH_LONG_URL;
+import static com.tinyurl.ApplicationConstants.SEARCH_LONG_URLS;
+import static com.tinyurl.ApplicationConstants.SEARCH_URL_DEDUP;
+import static com.tinyurl.ApplicationConstants.SEARCH_URL_DEDUPS;
+import static com.tinyurl.ApplicationConstants.SELECT_ALL_SHORT_URLS;
+import static com.tinyurl.ApplicationConstants.SELECT_LONG_URL;
+import static com.tinyurl.ApplicationConstants.SELECT_LONG_URLS;
+import static com.tinyurl.ApplicationConstants.SELECT_LONG_URL_HASHES;
+import static com.tinyurl.ApplicationConstants.SELECT_MISSING_LONG_URL_HASH;
+import static com.tinyurl.ApplicationConstants.SELECT_TOP_URLS_BY_CLICKS;
+import static com.tinyurl.ApplicationConstants.SELECT_TOP_URLS_BY_RECENCY;
+import static com.tinyurl.ApplicationConstants.SELECT_URL_DEDUP_CLAIMS;
+import static com.tinyurl.ApplicationConstants.UPDATE_LONG_URL_HASH;
 
+/**
+ * tiny_urls access, routed by {@link ShardRouter}: rows by short code, long url dedup lookups by long url hash.
+ * With one shard this is a plain single database repository.
+ * <ul>
+ *     <li>Writes go to the shard's primary; reads go to its replicas when there are any (see {@link ReplicaSet})</li>
+ *     <li>Read-your-writes: codes issued less than replica.read-your-writes-ms ago (Snowflake timestamp) are read
+ *     from the primary, and with replica.fallback-on-miss a code a replica doesn't have is read again from the
+ *     primary, in case the replica lags more than the window</li>
+ *     <li>Dedup lookups have no such fallback: when a lagging replica misses a long url, the insert is skipped by the
+ *     unique long_url_hash index and the caller reads the stored code from the primary</li>
+ * </ul>
+ */
 @Repository
 @Slf4j
 public class UrlRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final LongUrlHasher longUrlHasher;
+    private final Base62Encoder base62Encoder;
+
+    @Value("${replica.read-your-writes-ms:2000}")
+    private long readYourWritesMs = 2000;
 
-    public UrlRepository(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    @Value("${replica.fallback-on-miss:true}")
+    private boolean fallbackOnMiss = true;
+
+    public UrlRepository(ShardRouter shardRouter, LongUrlHasher longUrlHasher, Base62Encoder base62Encoder) {
+        this.shardRouter = shardRouter;
+        this.longUrlHasher = longUrlHasher;
+        this.base62Encoder = base62Encoder;
     }
 
     /**
-     * Updates the click count and retrieves the original Long URL.
+     * Retrieves the original Long URL with a single primary key lookup.
+     * This is a pure read: clicks for cache misses are recorded by {@link com.tinyurl.service.ClickTrackingService}
+     * like cache hits, so cold lookups never take a row lock.
      *
      * @param shortUrl The short code (primary key)
      * @return The long_url if found, or null if the short_url does not exist.
      */
-    @Transactional
-    @TimedOperation("incrementAndGetLongUrl")
-    public String incrementAndGetLongUrl(String shortUrl) {
-        // Try to increment the click count first.
-        // if any row gets updated rowsUpdated will not be 0
-        int rowsUpdated = jdbcTemplate.update(ApplicationConstants.UPDATE_CLICK, shortUrl);
-
-        // If no rows were updated, the short_url does not exist.
-        if (rowsUpdated == 0) {
-            return null;
+    @TimedOperation("findLongUrl")
+    public String findLongUrl(String shortUrl) {
+        ReplicaSet reads = shardRouter.reads(shardRouter.shardOfCode(shortUrl));
+        if (!reads.hasReplicas()) {
+            return queryLongUrl(reads.primary(), shortUrl);
         }
-
-        // Since the row exists, fetch the long_url.
-        try {
-            return jdbcTemplate.queryForObject(ApplicationConstants.SELECT_LONG_URL, String.class, shortUrl);
-        } catch (EmptyResultDataAccessException e) {
-            // This is unlikely to happen given the rowsUpdated check but good for safety.
-            return null;
+        if (isRecent(shortUrl)) {
+            return reads.readPrimary(jdbcTemplate -> queryLongUrl(jdbcTemplate, shortUrl));
+        }
+        String longUrl = reads.read(jdbcTemplate -> queryLongUrl(jdbcTemplate, shortUrl));
+        if (longUrl == null && fallbackOnMiss) {
+            return reads.readPrimary(jdbcTemplate -> queryLongUrl(jdbcTemplate, shortUrl));
         }
+        return longUrl;
     }
 
     /**
      * Saves a new shortUrl to the database.
      * Uses DB defaults for created_at and click_count.
+     * When sharded, tiny_urls is only unique per shard, so the long url is first claimed in url_dedup (unique on
+     * long_url_hash and the long_url prefix, like tiny_urls) on the shard of its hash, and the tiny_urls row is only written by the claim's winner:
+     * <ul>
+     *     <li>Lost claim: nothing is written and the caller reads the winner's code from url_dedup</li>
+     *     <li>tiny_urls insert skipped or failed: the claim is released</li>
+     *     <li>A crash between the two writes leaves a claim without its tiny_urls row: the long url then dedups to a
+     *     code that doesn't resolve until that url_dedup row is deleted</li>
+     * </ul>
      *
      * @param shortUrl encoded url
-     * @param longUrl  url for which the encoding was done
+     * @param longUrl  normalized url for which the encoding was done
+     * @return false if the short url or the long url is already stored
      */
     @TimedOperation("save")
     public boolean save(String shortUrl, String longUrl) {
         log.debug("saving shortUrl={}, longUrl={}", shortUrl, longUrl);
-        // Returns 0 if unable to insert
-        int rowsAffected = jdbcTemplate.update(ApplicationConstants.INSERT_URLS, shortUrl, longUrl);
-        return rowsAffected == 1;
+        long longUrlHash = longUrlHasher.hash(longUrl);
+        if (!shardRouter.isSharded()) {
+            // Returns 0 if unable to insert
+            return shardOf(shortUrl).update(ApplicationConstants.INSERT_URLS, shortUrl, longUrl, longUrlHash) == 1;
+        }
+        if (shardRouter.shard(shardRouter.shardOfUrlHash(longUrlHash))
+                .update(INSERT_URL_DEDUP_MULTI_ROW + "(?, ?, ?)", longUrlHash, longUrl, shortUrl) != 1) {
+            return false;
+        }
+        boolean inserted = false;
+        try {
+            inserted = shardOf(shortUrl).update(ApplicationConstants.INSERT_URLS, shortUrl, longUrl, longUrlHash) == 1;
+            return inserted;
+        } finally {
+            if (!inserted) {
+                releaseClaims(List.of(shortUrl), Map.of(shortUrl, longUrl));
+            }
+        }
     }
 
     /**
      * Checks if a given long_url is already present in the tiny_urls table.
+     * Looks up the fixed-width long_url_hash index and compares long_url to rule out hash collisions: a url
+     * sharing its hash with another stored url is simply not found, and can be stored.
      *
-     * @param longUrl The long URL string to check.
+     * @param longUrl The normalized long URL string to check.
      * @return shortUrl if the long URL is present, null otherwise.
-     * @throws DataAccessException if any Spring-related database error occurs.
+     * @throws LongUrlHashCollisionException if another long url holds the hash and the same indexed long_url
+     *                                       prefix, i.e. longUrl can't be stored
+     * @throws DataAccessException           if any Spring-related database error occurs.
      */
     @TimedOperation("findShortUrlByLongUrl")
     public String findShortUrlByLongUrl(String longUrl) throws DataAccessException {
+        return findShortUrlByLongUrl(longUrl, false);
+    }
+
+    /**
+     * Like {@link #findShortUrlByLongUrl(String)}, optionally on the primary: after losing an insert race the
+     * winning row may not have reached the replicas yet.
+     *
+     * @param primary read the primary even when the shard has replicas
+     */
+    public String findShortUrlByLongUrl(String longUrl, boolean primary) throws DataAccessException {
         log.debug("Checking if longUrl={} is already present", longUrl);
+        long longUrlHash = longUrlHasher.hash(longUrl);
+        String query = shardRouter.isSharded() ? SEARCH_URL_DEDUP : SEARCH_LONG_URL;
+        Function<JdbcTemplate, List<Map<String, Object>>> search = jdbcTemplate -> jdbcTemplate.queryForList(query, longUrlHash);
+        ReplicaSet reads = shardRouter.reads(shardRouter.shardOfUrlHash(longUrlHash));
+        List<Map<String, Object>> rows = primary ? reads.readPrimary(search) : reads.read(search);
+        for (Map<String, Object> row : rows) {
+            // rows from before long_url_hash may hold the url as sent, compare the normalized form
+            if (longUrl.equals(longUrlHasher.normalize((String) row.get("long_url")))) {
+                return (String) row.get("short_url");
+            }
+        }
+        for (Map<String, Object> row : rows) {
+            if (sharesIndexKey((String) row.get("long_url"), longUrl)) {
+                throw new LongUrlHashCollisionException(longUrl, longUrlHash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bulk version of {@link #findShortUrlByLongUrl}: one query through the long_url_hash index.
+     * A url whose hash is held by another url is simply not found; storing it then fails.
+     *
+     * @param longUrls normalized long urls, at most {@link ApplicationConstants#MAX_BULK_CHUNK_SIZE}
+     * @return longUrl → shortUrl for the long urls that are present
+     */
+    @TimedOperation("findShortUrlsByLongUrls")
+    public Map<String, String> findShortUrlsByLongUrls(Collection<String> longUrls) {
+        return findShortUrlsByLongUrls(longUrls, false);
+    }
+
+    /**
+     * Like {@link #findShortUrlsByLongUrls(Collection)}, optionally on the primaries, see
+     * {@link #findShortUrlByLongUrl(String, boolean)}.
+     */
+    public Map<String, String> findShortUrlsByLongUrls(Collection<String> longUrls, boolean primary) {
+        Map<String, String> shortUrls = new HashMap<>();
+        if (longUrls.isEmpty()) {
+            return shortUrls;
+        }
+        Set<String> wanted = new HashSet<>(longUrls);
+        List<Long> hashes = wanted.stream().map(longUrlHasher::hash).distinct().toList();
+        String query = shardRouter.isSharded() ? SEARCH_URL_DEDUPS : SEARCH_LONG_URLS;
+        shardRouter.partition(hashes, shardRouter::shardOfUrlHash).forEach((shard, shardHashes) -> {
+            Function<JdbcTemplate, Void> search = jdbcTemplate -> {
+                jdbcTemplate.query(String.format(query, placeholders("?", shardHashes.size())),
+                        (RowCallbackHandler) rs -> {
+                            // long_url rules out hash collisions
+                            String longUrl = longUrlHasher.normalize(rs.getString("long_url"));
+                            if (wanted.contains(longUrl)) {
+                                shortUrls.putIfAbsent(longUrl, rs.getString("short_url"));
+                            }
+                        }, shardHashes.toArray());
+                return null;
+            };
+            if (primary) {
+                shardRouter.reads(shard).readPrimary(search);
+            } else {
+                shardRouter.reads(shard).read(search);
+            }
+        });
+        return shortUrls;
+    }
+
+    /**
+     * Bulk version of {@link #findLongUrl}.
+     *
+     * @param shortUrls short codes, at most {@link ApplicationConstants#MAX_BULK_CHUNK_SIZE}
+     * @return shortUrl → longUrl for the short urls that exist
+     */
+    @TimedOperation("findLongUrls")
+    public Map<String, String> findLongUrls(Collection<String> shortUrls) {
+        Map<String, String> longUrls = new HashMap<>();
+        if (shortUrls.isEmpty()) {
+            return longUrls;
+        }
+        shardRouter.partition(shortUrls, shardRouter::shardOfCode).forEach((shard, shardShortUrls) -> {
+            ReplicaSet reads = shardRouter.reads(shard);
+            if (!reads.hasReplicas()) {
+                queryLongUrls(reads.primary(), shardShortUrls, longUrls);
+                return;
+            }
+            List<String> fromPrimary = new ArrayList<>();
+            List<String> fromReplica = new ArrayList<>();
+            for (String shortUrl : shardShortUrls) {
+                (isRecent(shortUrl) ? fromPrimary : fromReplica).add(shortUrl);
+            }
+            if (!fromReplica.isEmpty()) {
+                reads.read(jdbcTemplate -> queryLongUrls(jdbcTemplate, fromReplica, longUrls));
+                if (fallbackOnMiss) {
+                    fromReplica.stream().filter(shortUrl -> !longUrls.containsKey(shortUrl)).forEach(fromPrimary::add);
+                }
+            }
+            if (!fromPrimary.isEmpty()) {
+                reads.readPrimary(jdbcTemplate -> queryLongUrls(jdbcTemplate, fromPrimary, longUrls));
+            }
+        });
+        return longUrls;
+    }
+
+    /**
+     * Saves new mappings with one multi-row INSERT IGNORE per shard.
+     * When sharded, the long urls are claimed in url_dedup first with one multi-row INSERT IGNORE per shard, and only
+     * the won claims are inserted, see {@link #save}.
+     *
+     * @param mappings shortUrl → normalized longUrl, at most {@link ApplicationConstants#MAX_BULK_CHUNK_SIZE}
+     * @return the short urls that are now stored with their long url
+     */
+    @TimedOperation("saveAll")
+    public Set<String> saveAll(Map<String, String> mappings) {
+        if (mappings.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> saved = new LinkedHashSet<>();
+        if (!shardRouter.isSharded()) {
+            insertUrls(mappings, saved);
+            return saved;
+        }
+        Map<String, String> claimed = claimDedupRows(mappings);
         try {
-            return jdbcTemplate.queryForObject(SEARCH_LONG_URL, String.class, longUrl);
+            insertUrls(claimed, saved);
+            return saved;
+        } finally {
+            // a shard that failed leaves the rows stored on earlier shards in saved, their claims are kept
+            Set<String> unsaved = new HashSet<>(claimed.keySet());
+            unsaved.removeAll(saved);
+            releaseClaims(unsaved, claimed);
+        }
+    }
+
+    /**
+     * Adds the stored short urls to {@code saved} shard by shard, so they are there even if a later shard fails.
+     */
+    private void insertUrls(Map<String, String> mappings, Set<String> saved) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        shardRouter.partition(mappings.keySet(), shardRouter::shardOfCode).forEach((shard, shortUrls) -> {
+            List<Object> args = new ArrayList<>(shortUrls.size() * 3);
+            for (String shortUrl : shortUrls) {
+                args.add(shortUrl);
+                args.add(mappings.get(shortUrl));
+                args.add(longUrlHasher.hash(mappings.get(shortUrl)));
+            }
+            int rowsAffected = shardRouter.shard(shard).update(
+                    INSERT_URLS_MULTI_ROW + placeholders("(?, ?, ?)", shortUrls.size()), args.toArray());
+
+            if (rowsAffected == shortUrls.size()) {
+                saved.addAll(shortUrls);
+            } else {
+                // INSERT IGNORE skipped rows whose short_url already exists, keep the ones stored with our long url
+                queryLongUrls(shardRouter.shard(shard), shortUrls, new HashMap<>()).forEach((shortUrl, longUrl) -> {
+                    if (longUrl.equals(mappings.get(shortUrl))) {
+                        saved.add(shortUrl);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Inserts the url_dedup rows of new mappings, one multi-row INSERT IGNORE per shard.
+     *
+     * @return shortUrl → longUrl of the rows inserted, i.e. the long urls nobody else holds
+     */
+    private Map<String, String> claimDedupRows(Map<String, String> mappings) {
+        Set<String> claimed = new HashSet<>();
+        shardRouter.partition(mappings.keySet(), shortUrl -> dedupShardOf(shortUrl, mappings)).forEach((shard, shortUrls) -> {
+            List<Object> args = new ArrayList<>(shortUrls.size() * 3);
+            for (String shortUrl : shortUrls) {
+                args.add(longUrlHasher.hash(mappings.get(shortUrl)));
+                args.add(mappings.get(shortUrl));
+                args.add(shortUrl);
+            }
+            JdbcTemplate jdbcTemplate = shardRouter.shard(shard);
+            int rowsAffected = jdbcTemplate.update(
+                    INSERT_URL_DEDUP_MULTI_ROW + placeholders("(?, ?, ?)", shortUrls.size()), args.toArray());
+            if (rowsAffected == shortUrls.size()) {
+                claimed.addAll(shortUrls);
+                return;
+            }
+            // skipped rows: the long url is already claimed, or the short_url is (id reused)
+            jdbcTemplate.query(String.format(SELECT_URL_DEDUP_CLAIMS, placeholders("?", shortUrls.size())),
+                    (RowCallbackHandler) rs -> {
+                        String shortUrl = rs.getString("short_url");
+                        if (rs.getString("long_url").equals(mappings.get(shortUrl))) {
+                            claimed.add(shortUrl);
+                        }
+                    }, shortUrls.toArray());
+        });
+        Map<String, String> claimedMappings = new LinkedHashMap<>();
+        mappings.forEach((shortUrl, longUrl) -> {
+            if (claimed.contains(shortUrl)) {
+                claimedMappings.put(shortUrl, longUrl);
+            }
+        });
+        return claimedMappings;
+    }
+
+    /**
+     * Deletes url_dedup rows claimed for mappings that weren't stored. A failure is only logged: the caller's outcome
+     * doesn't change, the long urls just dedup to codes that don't resolve until the rows are deleted.
+     */
+    private void releaseClaims(Collection<String> shortUrls, Map<String, String> mappings) {
+        if (shortUrls.isEmpty()) {
+            return;
+        }
+        shardRouter.partition(shortUrls, shortUrl -> dedupShardOf(shortUrl, mappings)).forEach((shard, shardShortUrls) -> {
+            try {
+                shardRouter.shard(shard).update(String.format(DELETE_URL_DEDUP, placeholders("?", shardShortUrls.size())),
+                        shardShortUrls.toArray());
+            } catch (DataAccessException e) {
+                log.error("Failed to release url_dedup claims for shortUrls={}", shardShortUrls, e);
+            }
+        });
+    }
+
+    /**
+     * Streams every short_url in the table without buffering the result set, one shard after the other.
+     * Runs on replicas when there are any; if one fails mid-scan the shard is read again from the primary.
+     *
+     * @param action called once per short url, on the calling thread
+     */
+    public void forEachShortUrl(Consumer<String> action) {
+        forEachShard(shard -> shard.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SHORT_URLS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J streams rows one at a time instead of loading the whole table into memory
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getString(1))));
+    }
+
+    /**
+     * Streams the top rows by click_count or created_at without buffering the result set.
+     * When sharded, each shard contributes its own top limit / shards rows, one shard after the other.
+     *
+     * @param byClicks true for the most clicked rows first, false for the most recent
+     * @param limit    maximum number of rows
+     * @param action   called once per row with shortUrl and longUrl, on the calling thread; throw to stop early
+     */
+    public void forEachTopUrl(boolean byClicks, int limit, BiConsumer<String, String> action) {
+        int perShard = (limit + shardRouter.shardCount() - 1) / shardRouter.shardCount();
+        forEachShard(shard -> shard.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    byClicks ? SELECT_TOP_URLS_BY_CLICKS : SELECT_TOP_URLS_BY_RECENCY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setInt(1, perShard);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getString("short_url"), rs.getString("long_url"))));
+    }
+
+    /**
+     * Fetches rows created before long_url_hash existed, in short_url order.
+     *
+     * @param after only rows with a greater short_url, "" for the first page
+     * @param limit maximum number of rows to return
+     * @return shortUrl → longUrl of rows without a long_url_hash
+     */
+    public NavigableMap<String, String> findWithoutLongUrlHash(String after, int limit) {
+        // every shard's first rows after the cursor, merged: the first limit of them are the page
+        TreeMap<String, String> rows = new TreeMap<>();
+        for (JdbcTemplate shard : shardRouter.shards()) {
+            shard.query(SELECT_MISSING_LONG_URL_HASH,
+                    (RowCallbackHandler) rs -> {
+                        rows.put(rs.getString("short_url"), rs.getString("long_url"));
+                    }, after, limit);
+        }
+        while (rows.size() > limit) {
+            rows.pollLastEntry();
+        }
+        return rows;
+    }
+
+    /**
+     * Sets long_url_hash for the given rows in one JDBC batch per shard, hashing the normalized long url like
+     * new rows. A row whose normalized url another row already holds with a hash (the same url stored twice before
+     * dedup by hash, e.g. with a different scheme or host case) is skipped and keeps a NULL hash: it still
+     * resolves, dedup just returns the other row.
+     *
+     * @param rows shortUrl → longUrl as stored
+     * @return number of rows updated
+     */
+    public int backfillLongUrlHashes(Map<String, String> rows) {
+        int updated = 0;
+        for (Map.Entry<Integer, List<String>> shard : shardRouter.partition(rows.keySet(), shardRouter::shardOfCode).entrySet()) {
+            JdbcTemplate jdbcTemplate = shardRouter.shard(shard.getKey());
+            // normalized url → the first row of the page with it, minus the urls other rows already hold
+            Map<String, String> free = new LinkedHashMap<>();
+            for (String shortUrl : shard.getValue()) {
+                free.putIfAbsent(longUrlHasher.normalize(rows.get(shortUrl)), shortUrl);
+            }
+            List<Long> hashes = free.keySet().stream().map(longUrlHasher::hash).distinct().toList();
+            jdbcTemplate.query(String.format(SELECT_LONG_URL_HASHES, placeholders("?", hashes.size())),
+                    (RowCallbackHandler) rs -> {
+                        free.remove(longUrlHasher.normalize(rs.getString("long_url")));
+                    }, hashes.toArray());
+            updated += updateLongUrlHashes(jdbcTemplate, free.entrySet().stream()
+                    .map(row -> new Object[]{longUrlHasher.hash(row.getKey()), row.getValue()}).toList());
+        }
+        if (shardRouter.isSharded()) {
+            saveDedupRows(rows.keySet(), rows);
+        }
+        return updated;
+    }
+
+    private static int updateLongUrlHashes(JdbcTemplate jdbcTemplate, List<Object[]> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        try {
+            for (int count : jdbcTemplate.batchUpdate(UPDATE_LONG_URL_HASH, updates)) {
+                // Connector/J reports SUCCESS_NO_INFO (-2) for rewritten batches
+                updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        } catch (DuplicateKeyException e) {
+            // a new row took one of the urls since the check: one by one, skipping the taken ones
+            updated = 0;
+            for (Object[] update : updates) {
+                try {
+                    updated += jdbcTemplate.update(UPDATE_LONG_URL_HASH, update);
+                } catch (DuplicateKeyException taken) {
+                    log.debug("long_url_hash {} is already taken for the url of {}, leaving it without one", update[0], update[1]);
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Inserts url_dedup rows on the shards of their long url hashes, one multi-row INSERT IGNORE per shard.
+     *
+     * @param shortUrls the codes to index
+     * @param mappings  shortUrl → longUrl, normalized here for rows from before dedup by hash
+     */
+    void saveDedupRows(Collection<String> shortUrls, Map<String, String> mappings) {
+        Map<Integer, List<Object>> argsByShard = new HashMap<>();
+        for (String shortUrl : shortUrls) {
+            String longUrl = longUrlHasher.normalize(mappings.get(shortUrl));
+            long longUrlHash = longUrlHasher.hash(longUrl);
+            List<Object> args = argsByShard.computeIfAbsent(shardRouter.shardOfUrlHash(longUrlHash), shard -> new ArrayList<>());
+            args.add(longUrlHash);
+            args.add(longUrl);
+            args.add(shortUrl);
+        }
+        argsByShard.forEach((shard, args) -> shardRouter.shard(shard).update(
+                INSERT_URL_DEDUP_MULTI_ROW + placeholders("(?, ?, ?)", args.size() / 3), args.toArray()));
+    }
+
+    private JdbcTemplate shardOf(String shortUrl) {
+        return shardRouter.shard(shardRouter.shardOfCode(shortUrl));
+    }
+
+    private int dedupShardOf(String shortUrl, Map<String, String> mappings) {
+        return shardRouter.shardOfUrlHash(longUrlHasher.hash(mappings.get(shortUrl)));
+    }
+
+    // full scans run on a replica of each shard, one shard after the other
+    private void forEachShard(Consumer<JdbcTemplate> scan) {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.reads(shard).read(jdbcTemplate -> {
+                scan.accept(jdbcTemplate);
+                return null;
+            });
+        }
+    }
+
+    // true for codes that may not have reached the replicas yet
+    private boolean isRecent(String shortUrl) {
+        long id = base62Encoder.decode(shortUrl);
+        return id != Base62Encoder.INVALID && SnowflakeId.issuedAt(id) >= System.currentTimeMillis() - readYourWritesMs;
+    }
+
+    private static String queryLongUrl(JdbcTemplate jdbcTemplate, String shortUrl) {
+        try {
+            return jdbcTemplate.queryForObject(SELECT_LONG_URL, String.class, shortUrl);
         } catch (EmptyResultDataAccessException e) {
             return null;
         }
     }
 
+    private static Map<String, String> queryLongUrls(JdbcTemplate jdbcTemplate, Collection<String> shortUrls,
+                                                     Map<String, String> longUrls) {
+        jdbcTemplate.query(String.format(SELECT_LONG_URLS, placeholders("?", shortUrls.size())),
+                (RowCallbackHandler) rs -> {
+                    longUrls.put(rs.getString("short_url"), rs.getString("long_url"));
+                }, shortUrls.toArray());
+        return longUrls;
+    }
+
+    /**
+     * @return true if a row storing storedLongUrl keeps longUrl with the same hash out of idx_long_url_hash: the
+     * indexed long_url prefixes match (case-insensitively, like the default collation)
+     */
+    static boolean sharesIndexKey(String storedLongUrl, String longUrl) {
+        return indexedPrefix(storedLongUrl).equalsIgnoreCase(indexedPrefix(longUrl));
+    }
+
+    private static String indexedPrefix(String longUrl) {
+        return longUrl.length() > LONG_URL_INDEX_PREFIX ? longUrl.substring(0, LONG_URL_INDEX_PREFIX) : longUrl;
+    }
+
+    /**
+     * Placeholder list for IN clauses and multi-row inserts, e.g. "?, ?, ?".
+     */
+    static String placeholders(String group, int count) {
+        return String.join(", ", Collections.nCopies(count, group));
+    }
 }
@@ -0,0 +1,197 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.metrics.TimedOperation;
+import com.tinyurl.model.BulkShortenResult;
+import com.tinyurl.model.BulkShortenResult.Status;
+import com.tinyurl.model.SnowflakeId;
+import com.tinyurl.repository.UrlRepository;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.tinyurl.ApplicationConstants.MAX_BULK_CHUNK_SIZE;
+import static com.tinyurl.ApplicationConstants.MAX_LONG_URL_LENGTH;
+
+/**
+ * Bulk operations with a constant number of round trips per chunk, independent of the chunk size.
+ * <p>
+ * Shorten:
+ * <ul>
+ *     <li>One dedup query through the long_url_hash index</li>
+ *     <li>One batch of ids from the {@link IdGenerator}</li>
+ *     <li>One multi-row INSERT IGNORE</li>
+ *     <li>One pipelined Redis write to pre-warm the cache</li>
+ * </ul>
+ * A url repeated within the chunk gets the same short url. Urls another request stored in the meantime are looked
+ * up once more, on the primary, and reported as existing.
+ * <p>
+ * Resolve (never counts clicks):
+ * <ul>
+ *     <li>L1, then one MGET for the rest</li>
+ *     <li>One IN query per {@link com.tinyurl.ApplicationConstants#MAX_BULK_CHUNK_SIZE} cache misses</li>
+ *     <li>One pipelined Redis write to backfill the cache</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkUrlService {
+
+    private final IdGenerator idGenerator;
+    private final UrlRepository urlRepository;
+    private final UrlCacheService urlCacheService;
+    private final Base62Encoder base62Encoder;
+    private final LongUrlHasher longUrlHasher;
+    private final ShortUrlFilter shortUrlFilter;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${shorturl.fixed-width:0}")
+    private int fixedWidth;
+
+    /**
+     * @param longUrls   urls as sent by the client (null for elements that weren't urls),
+     *                   at most {@link com.tinyurl.ApplicationConstants#MAX_BULK_CHUNK_SIZE}
+     * @param firstIndex position of the first url in the whole request
+     * @return one result per url, in the same order
+     */
+    @TimedOperation("bulk.shorten")
+    public List<BulkShortenResult> shorten(List<String> longUrls, long firstIndex) {
+        if (longUrls.size() > MAX_BULK_CHUNK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_CHUNK_SIZE + " urls per chunk");
+        }
+
+        // normalized url → positions in the chunk
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        BulkShortenResult[] results = new BulkShortenResult[longUrls.size()];
+        for (int i = 0; i < longUrls.size(); i++) {
+            String longUrl = longUrls.get(i);
+            if (longUrl == null || longUrl.isBlank()) {
+                results[i] = BulkShortenResult.failed(firstIndex + i, longUrl, "longUrl is required");
+                continue;
+            }
+            String normalized = longUrlHasher.normalize(longUrl);
+            if (normalized.length() > MAX_LONG_URL_LENGTH) {
+                results[i] = BulkShortenResult.failed(firstIndex + i, longUrl,
+                        "longUrl is longer than " + MAX_LONG_URL_LENGTH + " characters");
+                continue;
+            }
+            pending.computeIfAbsent(normalized, url -> new ArrayList<>()).add(i);
+        }
+
+        try {
+            Map<String, String> existing = urlRepository.findShortUrlsByLongUrls(pending.keySet());
+            existing.forEach((longUrl, shortUrl) ->
+                    complete(results, pending.remove(longUrl), firstIndex, longUrl, shortUrl, Status.EXISTING));
+
+            List<SnowflakeId> ids = idGenerator.getNextIds(pending.size());
+            Map<String, String> created = new LinkedHashMap<>();
+            int next = 0;
+            for (String longUrl : pending.keySet()) {
+                created.put(base62Encoder.encode(ids.get(next++).getId(), fixedWidth), longUrl);
+            }
+
+            Set<String> saved = urlRepository.saveAll(created);
+            saved.forEach(shortUrlFilter::put);
+            Map<String, String> toCache = new LinkedHashMap<>();
+            created.forEach((shortUrl, longUrl) -> {
+                if (saved.contains(shortUrl)) {
+                    complete(results, pending.remove(longUrl), firstIndex, longUrl, shortUrl, Status.CREATED);
+                    toCache.put(shortUrl, longUrl);
+                }
+            });
+            cache(toCache);
+
+            // INSERT IGNORE skipped urls a concurrent request stored first (idx_long_url_hash is unique, on url_dedup when sharded)
+            if (!pending.isEmpty()) {
+                urlRepository.findShortUrlsByLongUrls(pending.keySet(), true).forEach((longUrl, shortUrl) ->
+                        complete(results, pending.remove(longUrl), firstIndex, longUrl, shortUrl, Status.EXISTING));
+            }
+        } catch (Exception e) {
+            log.error("Bulk shorten of {} urls failed: {}", pending.size(), e.getMessage());
+        }
+
+        // whatever is left couldn't be stored
+        pending.forEach((longUrl, positions) -> positions.forEach(i ->
+                results[i] = BulkShortenResult.failed(firstIndex + i, longUrl, "Failed to store longUrl")));
+
+        count(results);
+        return List.of(results);
+    }
+
+    /**
+     * @param shortUrls short codes, duplicates and invalid codes are allowed
+     * @return shortUrl → longUrl for the codes that exist, in request order
+     */
+    @TimedOperation("bulk.resolve")
+    public Map<String, String> resolve(List<String> shortUrls) {
+        // codes that can't exist are answered without I/O, like on GET
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String shortUrl : shortUrls) {
+            if (shortUrl != null && base62Encoder.isValid(shortUrl) && shortUrlFilter.mightExist(shortUrl)) {
+                candidates.add(shortUrl);
+            }
+        }
+
+        Map<String, String> found = urlCacheService.getAll(candidates);
+        List<String> misses = candidates.stream().filter(shortUrl -> !found.containsKey(shortUrl)).toList();
+        Map<String, String> loaded = new HashMap<>();
+        for (int from = 0; from < misses.size(); from += MAX_BULK_CHUNK_SIZE) {
+            List<String> chunk = misses.subList(from, Math.min(from + MAX_BULK_CHUNK_SIZE, misses.size()));
+            loaded.putAll(urlRepository.findLongUrls(chunk));
+        }
+        cache(loaded);
+        found.putAll(loaded);
+        performanceMetrics.increment("bulk.resolve.cacheMisses", misses.size());
+
+        Map<String, String> resolved = new LinkedHashMap<>();
+        for (String shortUrl : candidates) {
+            String longUrl = found.get(shortUrl);
+            if (longUrl != null) {
+                resolved.put(shortUrl, longUrl);
+            }
+        }
+        return resolved;
+    }
+
+    private void cache(Map<String, String> mappings) {
+        try {
+            urlCacheService.putAll(mappings);
+        } catch (Exception e) {
+            // the urls are stored, later lookups will populate the cache
+            log.warn("Failed to write cache for {} urls: {}", mappings.size(), e.getMessage());
+        }
+    }
+
+    private static void complete(BulkShortenResult[] results, List<Integer> positions, long firstIndex,
+                                 String longUrl, String shortUrl, Status status) {
+        for (int i : positions) {
+            results[i] = new BulkShortenResult(firstIndex + i, longUrl, shortUrl, status, null);
+        }
+    }
+
+    private void count(BulkShortenResult[] results) {
+        long created = 0, existing = 0, failed = 0;
+        for (BulkShortenResult result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case EXISTING -> existing++;
+                case FAILED -> failed++;
+            }
+        }
+        performanceMetrics.increment("bulk.created", created);
+        performanceMetrics.increment("bulk.existing", existing);
+        performanceMetrics.increment("bulk.failed", failed);
+    }
+}
@@ -0,0 +1,157 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.UrlRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills Redis with the most clicked (or most recent) mappings after startup, so a deploy or a Redis flush doesn't
+ * send every hot link to MySQL at once.
+ * <ul>
+ *     <li>Streams the top cache.warmup.rows rows of tiny_urls with a forward-only cursor</li>
+ *     <li>Writes them in chunks of cache.warmup.batch-size with {@link UrlCacheService#putAll} (one pipelined round
+ *     trip per chunk), at most cache.warmup.concurrency chunks in flight; the cursor waits for a free slot</li>
+ *     <li>Stops reading when cache.warmup.time-budget-ms is spent</li>
+ *     <li>Health (cacheWarmer, part of the readiness group) is OUT_OF_SERVICE until the warm-up is over,
+ *     whether it completed, ran out of time or failed</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CacheWarmer implements HealthIndicator {
+
+    private final UrlRepository urlRepository;
+    private final UrlCacheService urlCacheService;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${cache.warmup.rows:100000}")
+    private int rows = 100_000;
+
+    // 'clicks' (most clicked first) or 'recent' (newest first)
+    @Value("${cache.warmup.order:clicks}")
+    private String order = "clicks";
+
+    @Value("${cache.warmup.time-budget-ms:30000}")
+    private long timeBudgetMs = 30_000;
+
+    @Value("${cache.warmup.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${cache.warmup.concurrency:4}")
+    private int concurrency = 4;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsCached = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile State state = State.PENDING;
+
+    enum State {
+        PENDING, RUNNING, COMPLETED, OUT_OF_TIME, FAILED, DISABLED
+    }
+
+    // thrown from the row callback to close the cursor once the time budget is spent
+    private static final class BudgetExceededException extends RuntimeException {
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled || rows <= 0) {
+            state = State.DISABLED;
+            return;
+        }
+        performanceMetrics.gauge("cache.warmup.rows.read", rowsRead, AtomicLong::get);
+        performanceMetrics.gauge("cache.warmup.rows.cached", rowsCached, AtomicLong::get);
+        performanceMetrics.gauge("cache.warmup.progress", this, warmer -> (double) warmer.rowsCached.get() / warmer.rows);
+        performanceMetrics.gauge("cache.warmup.done", this, warmer -> warmer.isDone() ? 1 : 0);
+        Thread.ofVirtual().name("cache-warmer").start(this::warmUp);
+    }
+
+    public void warmUp() {
+        state = State.RUNNING;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeBudgetMs);
+        Semaphore inFlight = new Semaphore(concurrency);
+        State outcome = State.COMPLETED;
+        try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, String> chunk = new HashMap<>(batchSize * 2);
+            try {
+                urlRepository.forEachTopUrl(!"recent".equalsIgnoreCase(order), rows, (shortUrl, longUrl) -> {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new BudgetExceededException();
+                    }
+                    rowsRead.incrementAndGet();
+                    chunk.put(shortUrl, longUrl);
+                    if (chunk.size() == batchSize) {
+                        submit(writers, inFlight, Map.copyOf(chunk));
+                        chunk.clear();
+                    }
+                });
+            } catch (BudgetExceededException e) {
+                outcome = State.OUT_OF_TIME;
+            }
+            if (!chunk.isEmpty()) {
+                submit(writers, inFlight, Map.copyOf(chunk));
+            }
+        } catch (RuntimeException e) {
+            log.error("Cache warm-up failed after {} rows: {}", rowsCached.get(), e.getMessage());
+            outcome = State.FAILED;
+        }
+        long durationNanos = System.nanoTime() - start;
+        performanceMetrics.record("cache.warmup", durationNanos);
+        state = outcome;
+        log.info("Cache warm-up {}: {} of {} rows read, {} cached ({} failed batches) in {}ms",
+                outcome, rowsRead.get(), rows, rowsCached.get(), failedBatches.get(), durationNanos / 1_000_000);
+    }
+
+    public boolean isDone() {
+        return state != State.PENDING && state != State.RUNNING;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = isDone() ? Health.up() : Health.outOfService();
+        return health
+                .withDetail("state", state)
+                .withDetail("rowsRead", rowsRead.get())
+                .withDetail("rowsCached", rowsCached.get())
+                .withDetail("failedBatches", failedBatches.get())
+                .build();
+    }
+
+    private void submit(ExecutorService writers, Semaphore inFlight, Map<String, String> mappings) {
+        inFlight.acquireUninterruptibly();
+        writers.execute(() -> {
+            try {
+                urlCacheService.putAll(mappings);
+                rowsCached.addAndGet(mappings.size());
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                log.warn("Cache warm-up batch of {} rows failed: {}", mappings.size(), e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+}
@@ -1,21 +1,46 @@
 package com.tinyurl.service;
 
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.metrics.OperationTimer;
+import com.tinyurl.metrics.PerformanceMetrics;
 import com.tinyurl.metrics.TimedOperation;
+import com.tinyurl.repository.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+import static com.tinyurl.ApplicationConstants.ADD_CLICKS;
 import static com.tinyurl.ApplicationConstants.CLICK_COUNT_KEY_PREFIX;
 
 /**
  * Service for tracking URL click counts
  * <ul>
+ *     <li>Clicks are first absorbed by a node-local, striped counter map (no I/O on the redirect path)</li>
+ *     <li>Local counts are merged into Redis every second with one pipelined INCRBY batch</li>
  *     <li>Clicks are accumulated in Redis and periodically flushed to DB</li>
+ *     <li>In Redis a count is either its own "clicks:{code}" key or, with cache.redis.layout=buckets, field {code} of
+ *     hash "cb:{bucket}"; buckets have no TTL, the flush drains and deletes them</li>
  *     <li>Eventually consistent</li>
  * </ul>
  */
@@ -24,59 +49,342 @@ import static com.tinyurl.ApplicationConstants.CLICK_COUNT_KEY_PREFIX;
 @RequiredArgsConstructor
 public class ClickTrackingService {
 
+    // HGETALL + DEL of a click bucket in one atomic step, so no increment lands between the read and the delete
+    private static final byte[] DRAIN_BUCKET_SCRIPT = toBytes(
+            "local counts = redis.call('HGETALL', KEYS[1]) redis.call('DEL', KEYS[1]) return counts");
+
     private final StringRedisTemplate redisTemplate;
-    private final JdbcTemplate jdbcTemplate;
+    private final RedisLayout redisLayout;
+    private final ShardRouter shardRouter;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${click.flush.batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${click.local.enabled:true}")
+    private boolean localAggregationEnabled;
+
+    @Value("${click.local.max-keys:100000}")
+    private int localMaxKeys;
+
+    // Number of pending click counters found by the last flush
+    private final AtomicLong flushBacklog = new AtomicLong();
+
+    // shortUrl → clicks not yet merged into Redis
+    private final ConcurrentHashMap<String, LongAdder> localClicks = new ConcurrentHashMap<>();
+    // counters removed from localClicks by the previous merge, drained once more by the next one
+    private final ConcurrentLinkedQueue<Map.Entry<String, LongAdder>> retiredClicks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean spillInFlight = new AtomicBoolean();
+
+    // resolved once, recordClick runs on every redirect
+    private OperationTimer recordClickTimer;
+    private OperationTimer incrementInRedisTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        recordClickTimer = performanceMetrics.timer("recordClick");
+        incrementInRedisTimer = performanceMetrics.timer("incrementInRedis");
+        performanceMetrics.gauge("clicks.flush.backlog", flushBacklog, AtomicLong::get);
+        performanceMetrics.gauge("clicks.local.keys", localClicks, Map::size);
+    }
+
+    /**
+     * Records a click for a redirect.
+     * Counted in the node-local buffer when enabled, otherwise directly in Redis.
+     * Once the buffer holds click.local.max-keys distinct codes, new codes go straight
+     * to Redis and the buffer is spilled (merged and emptied) early.
+     */
+    public void recordClick(String shortUrl) {
+        long start = recordClickTimer.start();
+        try {
+            if (!recordLocally(shortUrl)) {
+                incrementInRedis(shortUrl);
+            }
+        } finally {
+            recordClickTimer.stop(start);
+        }
+    }
+
+    /**
+     * Counts the click in the node-local buffer, without any I/O.
+     *
+     * @return false if the click has to be counted in Redis instead (buffer disabled or full)
+     */
+    public boolean recordLocally(String shortUrl) {
+        if (!localAggregationEnabled) {
+            return false;
+        }
+
+        LongAdder clicks = localClicks.get(shortUrl);
+        if (clicks == null) {
+            if (localClicks.size() >= localMaxKeys) {
+                spillAsync();
+                return false;
+            }
+            clicks = localClicks.computeIfAbsent(shortUrl, key -> new LongAdder());
+        }
+        clicks.increment();
+        return true;
+    }
 
     /**
      * Counts are batched and periodically flushed to DB.
      */
-    @TimedOperation("incrementInRedis")
     public void incrementInRedis(String shortUrl) {
-        String key = CLICK_COUNT_KEY_PREFIX + shortUrl;
-        redisTemplate.opsForValue().increment(key);
+        String key = redisLayout.clickKey(shortUrl);
+        long start = incrementInRedisTimer.start();
+        try {
+            if (redisLayout.isBucketed()) {
+                redisTemplate.opsForHash().increment(key, shortUrl, 1);
+            } else {
+                redisTemplate.opsForValue().increment(key);
+            }
+        } finally {
+            incrementInRedisTimer.stop(start);
+        }
         log.debug("Incremented Redis click count for shortUrl={}", shortUrl);
     }
 
+    /**
+     * Scheduled task: Merge the node-local click counts into Redis.
+     * <p>
+     * Counters are drained with sumThenReset, so increments racing with a merge are carried into the next one.
+     * Codes that saw no clicks since the previous merge are dropped from the buffer, but their counter is drained
+     * once more by the next merge: a redirect may have looked it up just before the removal and increment it after.
+     */
+    @TimedOperation("mergeLocalClicks")
+    @Scheduled(fixedRateString = "${click.local.merge-interval-ms:1000}")
+    public void mergeLocalClicks() {
+        merge(false);
+    }
+
+    /**
+     * Early merge of a full buffer: like {@link #mergeLocalClicks()}, but every code is dropped from the buffer, so
+     * a buffer full of active codes is emptied instead of being spilled again on the next new code.
+     */
+    void spillLocalClicks() {
+        merge(true);
+    }
+
+    private void merge(boolean evictAll) {
+        Map<String, Long> deltas = new HashMap<>();
+        // only the counters retired by earlier merges, not the ones this merge retires
+        for (int retired = retiredClicks.size(); retired > 0; retired--) {
+            Map.Entry<String, LongAdder> entry = retiredClicks.poll();
+            if (entry == null) {
+                break;
+            }
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                deltas.merge(entry.getKey(), delta, Long::sum);
+            }
+        }
+        localClicks.forEach((shortUrl, clicks) -> {
+            if (evictAll && localClicks.remove(shortUrl, clicks)) {
+                retiredClicks.add(Map.entry(shortUrl, clicks));
+            }
+            long delta = clicks.sumThenReset();
+            if (delta > 0) {
+                deltas.merge(shortUrl, delta, Long::sum);
+            } else if (!evictAll && localClicks.remove(shortUrl, clicks)) {
+                retiredClicks.add(Map.entry(shortUrl, clicks));
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                deltas.forEach((shortUrl, delta) -> incrementBy(connection, shortUrl, delta));
+                return null;
+            });
+            log.debug("Merged local click counts for {} short urls into Redis", deltas.size());
+        } catch (Exception e) {
+            log.warn("Failed to merge {} local click counts into Redis, keeping them: {}", deltas.size(), e.getMessage());
+            putBack(deltas);
+        }
+    }
+
+    /**
+     * Puts counts that couldn't be merged back into the buffer, within click.local.max-keys: counts of codes that
+     * no longer fit are dropped and counted in clicks.local.dropped.
+     */
+    private void putBack(Map<String, Long> deltas) {
+        long dropped = 0;
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            LongAdder clicks = localClicks.get(delta.getKey());
+            if (clicks == null) {
+                if (localClicks.size() >= localMaxKeys) {
+                    dropped += delta.getValue();
+                    continue;
+                }
+                clicks = localClicks.computeIfAbsent(delta.getKey(), key -> new LongAdder());
+            }
+            clicks.add(delta.getValue());
+        }
+        if (dropped > 0) {
+            log.warn("Click buffer is full, dropped {} clicks that couldn't be merged into Redis", dropped);
+            performanceMetrics.increment("clicks.local.dropped", dropped);
+        }
+    }
+
+    /**
+     * Merge whatever is still buffered before the Redis connection goes away.
+     */
+    @PreDestroy
+    public void mergeOnShutdown() {
+        if (!localClicks.isEmpty() || !retiredClicks.isEmpty()) {
+            log.info("Merging {} buffered click counts before shutdown", localClicks.size());
+            mergeLocalClicks();
+            // and the counters that merge retired
+            mergeLocalClicks();
+        }
+    }
+
+    private void spillAsync() {
+        if (spillInFlight.compareAndSet(false, true)) {
+            performanceMetrics.increment("clicks.local.spills");
+            Thread.ofVirtual().name("click-spill").start(() -> {
+                try {
+                    spillLocalClicks();
+                } finally {
+                    spillInFlight.set(false);
+                }
+            });
+        }
+    }
+
     /**
      * Scheduled task: Flush accumulated click counts from Redis to DB.
      * Runs every 60 seconds by default.
      * <p>
-     * This batches potentially thousands of individual clicks into
-     * a single DB update per URL, dramatically reducing DB load.
+     * Keys are walked with a cursor (SCAN) instead of KEYS so Redis is never blocked.
+     * Each page of keys is drained with one pipelined round trip of GETDELs (or bucket drain scripts) and written
+     * with one JDBC batch per shard, so a flush costs O(keys / batch size) round trips.
      */
     @TimedOperation("flushClicksToDB")
     @Scheduled(fixedRateString = "${click.flush.interval-ms:60000}")
     public void flushClicksToDB() {
-        Set<String> keys = redisTemplate.keys(CLICK_COUNT_KEY_PREFIX + "*");
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(redisLayout.clickKeyPattern())
+                .count(flushBatchSize)
+                .build();
+
+        long pending = 0;
+        long rowsWritten = 0;
+        List<String> keys = new ArrayList<>(flushBatchSize);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+                if (keys.size() == flushBatchSize) {
+                    List<Object[]> updates = drain(keys);
+                    pending += updates.size();
+                    rowsWritten += write(updates);
+                    keys.clear();
+                }
+            }
+        }
+        if (!keys.isEmpty()) {
+            List<Object[]> updates = drain(keys);
+            pending += updates.size();
+            rowsWritten += write(updates);
+        }
 
-        if (keys == null || keys.isEmpty()) {
+        flushBacklog.set(pending);
+        if (pending == 0) {
             log.warn("No pending click counts to flush");
             return;
         }
+        performanceMetrics.increment("clicks.flush.rows", rowsWritten);
+        log.info("Flushed {} click counts to DB", rowsWritten);
+    }
 
-        log.info("Flushing {} click counts to DB", keys.size());
-
-        for (String key : keys) {
-            try {
-                // Atomically get and delete the count
-                String countStr = redisTemplate.opsForValue().getAndDelete(key);
+    /**
+     * Atomically drains the counters of one page of keys or buckets, in one pipelined round trip.
+     *
+     * @return {count, shortUrl} pairs
+     */
+    private List<Object[]> drain(List<String> keys) {
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                if (redisLayout.isBucketed()) {
+                    connection.scriptingCommands().eval(DRAIN_BUCKET_SCRIPT, ReturnType.MULTI, 1, toBytes(key));
+                } else {
+                    connection.stringCommands().getDel(toBytes(key));
+                }
+            }
+            return null;
+        });
 
-                if (countStr != null) {
-                    long count = Long.parseLong(countStr);
-                    String shortUrl = key.substring(CLICK_COUNT_KEY_PREFIX.length());
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            // null (or empty) if the key was already drained, e.g. SCAN returned it twice
+            Object count = counts.get(i);
+            if (count instanceof List<?> fieldsAndCounts) {
+                for (int field = 0; field + 1 < fieldsAndCounts.size(); field += 2) {
+                    updates.add(new Object[]{Long.parseLong(asString(fieldsAndCounts.get(field + 1))),
+                            asString(fieldsAndCounts.get(field))});
+                }
+            } else if (count != null) {
+                String shortUrl = keys.get(i).substring(CLICK_COUNT_KEY_PREFIX.length());
+                updates.add(new Object[]{Long.parseLong((String) count), shortUrl});
+            }
+        }
+        return updates;
+    }
 
-                    // Batch update: add accumulated count
-                    jdbcTemplate.update(
-                            "UPDATE tiny_urls SET click_count = click_count + ? WHERE short_url = ?",
-                            count, shortUrl
-                    );
+    /**
+     * Adds drained counts to the DB.
+     * If the DB write fails the drained counts are put back so they are retried on the next flush.
+     *
+     * @return number of rows written
+     */
+    private int write(List<Object[]> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
 
-                    log.debug("Flushed {} clicks for shortUrl={}", count, shortUrl);
-                }
+        // one JDBC batch per shard; a failing shard only restores its own counts
+        int written = 0;
+        for (Map.Entry<Integer, List<Object[]>> shard
+                : shardRouter.partition(updates, update -> shardRouter.shardOfCode((String) update[1])).entrySet()) {
+            try {
+                shardRouter.shard(shard.getKey()).batchUpdate(ADD_CLICKS, shard.getValue());
+                written += shard.getValue().size();
             } catch (Exception e) {
-                log.warn("Failed to flush clicks for key={}: {}", key, e.getMessage());
+                log.warn("Failed to flush {} click counts to shard {}, restoring them in Redis: {}",
+                        shard.getValue().size(), shard.getKey(), e.getMessage());
+                restore(shard.getValue());
             }
         }
+        return written;
+    }
+
+    private void restore(List<Object[]> updates) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Object[] update : updates) {
+                incrementBy(connection, (String) update[1], (Long) update[0]);
+            }
+            return null;
+        });
     }
-}
 
+    private void incrementBy(RedisConnection connection, String shortUrl, long delta) {
+        byte[] key = toBytes(redisLayout.clickKey(shortUrl));
+        if (redisLayout.isBucketed()) {
+            connection.hashCommands().hIncrBy(key, toBytes(shortUrl), delta);
+        } else {
+            connection.stringCommands().incrBy(key, delta);
+        }
+    }
+
+    // script replies come back deserialized or as raw bytes depending on the driver
+    private static String asString(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+    }
+
+    private static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.TimedOperation;
+import com.tinyurl.model.SnowflakeId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+
+/**
+ * In-process, lock-free Snowflake id generator with the same id layout as the remote generator.
+ * <ul>
+ *     <li>The last issued (timestamp, sequence) pair is packed into a single AtomicLong and advanced with CAS</li>
+ *     <li>Sequence overflow: the sequence carries into the timestamp, i.e. ids are borrowed from the next millisecond</li>
+ *     <li>Clock regression: ids keep being issued from the last timestamp, so ids stay monotonic</li>
+ *     <li>Ids run ahead of the wall clock by at most {@code snowflake.embedded.max-clock-drift-ms};
+ *     sustained overflow then waits for the clock, a larger clock regression fails</li>
+ * </ul>
+ * Node ids must be unique across all generators (embedded and remote) sharing the same database.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "snowflake.generator.mode", havingValue = "embedded")
+public class EmbeddedSnowflakeGenerator implements IdGenerator {
+
+    private static final long MAX_NODE_ID = (1L << SNOWFLAKE_NODE_ID_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SNOWFLAKE_SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final String host;
+    private final long maxClockDriftMs;
+    private final LongSupplier clock;
+
+    // (milliseconds since epoch << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public EmbeddedSnowflakeGenerator(@Value("${snowflake.embedded.node-id:-1}") long nodeId,
+                                      @Value("${snowflake.embedded.max-clock-drift-ms:1000}") long maxClockDriftMs) {
+        this(nodeId, resolveHost(), maxClockDriftMs, System::currentTimeMillis);
+    }
+
+    EmbeddedSnowflakeGenerator(long nodeId, String host, long maxClockDriftMs, LongSupplier clock) {
+        this.host = host;
+        this.nodeId = nodeId >= 0 ? nodeId : deriveNodeId(host);
+        if (this.nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.maxClockDriftMs = maxClockDriftMs;
+        this.clock = clock;
+        log.info("Embedded Snowflake generator started with nodeId={} host={}", this.nodeId, host);
+    }
+
+    @Override
+    @TimedOperation("getNextId")
+    public SnowflakeId getNextId() {
+        return new SnowflakeId(nextId(), nodeId, host);
+    }
+
+    /**
+     * Minting doesn't block (it only spins briefly at the drift limit), so it runs on the caller's thread.
+     */
+    @Override
+    public Mono<SnowflakeId> getNextIdAsync() {
+        return Mono.fromSupplier(() -> new SnowflakeId(nextId(), nodeId, host));
+    }
+
+    @Override
+    @TimedOperation("getNextIds")
+    public List<SnowflakeId> getNextIds(int count) {
+        List<SnowflakeId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new SnowflakeId(nextId(), nodeId, host));
+        }
+        return ids;
+    }
+
+    /**
+     * Mints the next id without allocating.
+     *
+     * @return the next unique id
+     * @throws IllegalStateException if the clock moved back further than the allowed drift
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long lastMillis = last >>> SNOWFLAKE_SEQUENCE_BITS;
+            long nowMillis = clock.getAsLong() - SNOWFLAKE_EPOCH_MS;
+
+            long next;
+            if (nowMillis > lastMillis) {
+                next = nowMillis << SNOWFLAKE_SEQUENCE_BITS;
+            } else if (lastMillis - nowMillis <= maxClockDriftMs) {
+                if ((last & MAX_SEQUENCE) == MAX_SEQUENCE && lastMillis - nowMillis == maxClockDriftMs) {
+                    // Borrowed as far ahead as allowed - wait for the clock to catch up
+                    Thread.onSpinWait();
+                    continue;
+                }
+                // Same millisecond, clock went backwards, or already ahead after a sequence overflow.
+                // Incrementing the packed state carries a sequence overflow into the timestamp.
+                next = last + 1;
+            } else {
+                throw new IllegalStateException(String.format(
+                        "Clock is %dms behind the last issued id, refusing to generate ids", lastMillis - nowMillis));
+            }
+
+            if (lastState.compareAndSet(last, next)) {
+                long millis = next >>> SNOWFLAKE_SEQUENCE_BITS;
+                long sequence = next & MAX_SEQUENCE;
+                return (millis << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS))
+                        | (nodeId << SNOWFLAKE_SEQUENCE_BITS)
+                        | sequence;
+            }
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Fallback when no node id is configured: hash of host name and pid.
+     * Collisions are possible, so configure snowflake.embedded.node-id when running several instances.
+     */
+    private static long deriveNodeId(String host) {
+        long hash = 31L * host.hashCode() + ProcessHandle.current().pid();
+        long derived = (hash ^ (hash >>> 32)) & MAX_NODE_ID;
+        log.warn("snowflake.embedded.node-id not set, derived nodeId={} from host and pid", derived);
+        return derived;
+    }
+
+    private static String resolveHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.UrlRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.tinyurl.ApplicationConstants.MAX_BULK_CHUNK_SIZE;
+
+/**
+ * Write path of POST /shorten: either one autocommit INSERT IGNORE per request, or group commit.
+ * <ul>
+ *     <li>write.group-commit.enabled=false (default): {@link UrlRepository#save}, as before</li>
+ *     <li>write.group-commit.enabled=true: requests go into a bounded queue; writer threads take up to batch-size
+ *     of them, waiting at most max-linger-ms for a batch to fill, and store them with one multi-row INSERT IGNORE
+ *     ({@link UrlRepository#saveAll}), i.e. one commit and one log flush per batch</li>
+ *     <li>Callers block until their batch is committed, on a {@link CompletableFuture} (no pinned virtual threads)</li>
+ *     <li>Backpressure: when the queue stays full for offer-timeout-ms the request fails with 503</li>
+ *     <li>Writers drain the queue before exiting on shutdown; a write queued after that fails with 503</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GroupCommitWriter {
+
+    private final UrlRepository urlRepository;
+    private final ShortUrlFilter shortUrlFilter;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${write.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${write.group-commit.batch-size:64}")
+    private int batchSize = 64;
+
+    // 0: commit whatever queued up while the previous batch was being written
+    @Value("${write.group-commit.max-linger-ms:0}")
+    private long maxLingerMs;
+
+    @Value("${write.group-commit.queue-capacity:4096}")
+    private int queueCapacity = 4096;
+
+    @Value("${write.group-commit.writers:2}")
+    private int writers = 2;
+
+    @Value("${write.group-commit.offer-timeout-ms:100}")
+    private long offerTimeoutMs = 100;
+
+    private BlockingQueue<PendingWrite> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    private record PendingWrite(String shortUrl, String longUrl, CompletableFuture<Boolean> saved) {
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (batchSize < 1 || batchSize > MAX_BULK_CHUNK_SIZE) {
+            throw new IllegalArgumentException("write.group-commit.batch-size must be between 1 and " + MAX_BULK_CHUNK_SIZE);
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            writerThreads.add(Thread.ofPlatform().name("group-commit-" + i).daemon().start(this::runWriter));
+        }
+        performanceMetrics.gauge("write.queue.size", queue, BlockingQueue::size);
+        log.info("Group commit enabled: {} writers, batches of up to {} rows, {}ms linger, queue of {}",
+                writers, batchSize, maxLingerMs, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writerThreads) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Store a new mapping and add it to the short url Bloom filter.
+     *
+     * @param shortUrl encoded url
+     * @param longUrl  normalized url for which the encoding was done
+     * @return false if INSERT IGNORE skipped the row (the short url or the long url is already stored)
+     */
+    public boolean save(String shortUrl, String longUrl) {
+        boolean saved = enabled ? saveInBatch(shortUrl, longUrl) : urlRepository.save(shortUrl, longUrl);
+        if (saved) {
+            shortUrlFilter.put(shortUrl);
+        }
+        return saved;
+    }
+
+    private boolean saveInBatch(String shortUrl, String longUrl) {
+        PendingWrite write = new PendingWrite(shortUrl, longUrl, new CompletableFuture<>());
+        try {
+            if (!running || !queue.offer(write, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                performanceMetrics.increment("write.rejected");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write queue is full, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while queueing the write");
+        }
+        // stop() ran since the check above: the writers may have exited, take the write back unless one got it
+        if (!running && queue.remove(write)) {
+            performanceMetrics.increment("write.rejected");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down, retry later");
+        }
+        try {
+            return write.saved().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        // drain what is left after stop() before exiting
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+                while (batch.size() < batchSize) {
+                    // take what is already queued without waiting, then linger for the rest
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                // callers of a half-built batch are still waiting
+                commit(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            mappings.put(write.shortUrl(), write.longUrl());
+        }
+        try {
+            Set<String> saved = urlRepository.saveAll(mappings);
+            for (PendingWrite write : batch) {
+                write.saved().complete(saved.contains(write.shortUrl()));
+            }
+            performanceMetrics.increment("write.batches");
+            performanceMetrics.increment("write.rows", batch.size());
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} rows failed: {}", batch.size(), e.getMessage());
+            for (PendingWrite write : batch) {
+                write.saved().completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.utils.HeavyHitters;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Finds the hottest short codes on the redirect path and pins them in the in-process cache tier.
+ * <ul>
+ *     <li>Resolved redirects are fed to a {@link HeavyHitters} sketch, sampled 1 in hotkeys.sample-every</li>
+ *     <li>A top-K code whose estimated requests reach hotkeys.min-requests is pinned: {@link UrlCacheService}
+ *     serves it from a map that is never evicted, so it can't fall out of the L1 and hit one Redis shard</li>
+ *     <li>Every hotkeys.refresh-interval-ms the estimates are halved (recent traffic only)
+ *     and codes that cooled down are unpinned</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HotKeyTracker {
+
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${hotkeys.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${hotkeys.top-k:100}")
+    private int topK = 100;
+
+    // power of two
+    @Value("${hotkeys.sample-every:8}")
+    private int sampleEvery = 8;
+
+    // estimated requests since the last refresh, plus half of the ones before, and so on
+    @Value("${hotkeys.min-requests:1000}")
+    private long minRequests = 1000;
+
+    @Value("${hotkeys.sketch-width:4096}")
+    private int sketchWidth = 4096;
+
+    @Value("${hotkeys.sketch-depth:4}")
+    private int sketchDepth = 4;
+
+    private volatile HeavyHitters heavyHitters;
+    private final ConcurrentHashMap<String, String> pinned = new ConcurrentHashMap<>();
+    private int sampleMask;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("hotkeys.sample-every must be a power of two, got " + sampleEvery);
+        }
+        sampleMask = sampleEvery - 1;
+        heavyHitters = HeavyHitters.create(topK, sketchWidth, sketchDepth);
+        performanceMetrics.gauge("hotkeys.pinned", pinned, Map::size);
+        performanceMetrics.gauge("hotkeys.sketch.memory.bytes", this, tracker -> tracker.heavyHitters.memoryBytes());
+    }
+
+    /**
+     * Count one redirect, pinning the code once it is hot.
+     *
+     * @param shortUrl the short URL code
+     * @param longUrl  what it resolved to
+     */
+    public void record(String shortUrl, String longUrl) {
+        HeavyHitters sketch = heavyHitters;
+        if (sketch == null || (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0)) {
+            return;
+        }
+        long estimate = sketch.add(shortUrl) * sampleEvery;
+        if (estimate >= minRequests && !pinned.containsKey(shortUrl) && sketch.isTop(shortUrl)) {
+            pinned.put(shortUrl, longUrl);
+            log.info("Pinned hot shortUrl={} (~{} requests)", shortUrl, estimate);
+        }
+    }
+
+    /**
+     * @param shortUrl the short URL code
+     * @return the long URL if the code is pinned, null otherwise
+     */
+    public String pinned(String shortUrl) {
+        return pinned.isEmpty() ? null : pinned.get(shortUrl);
+    }
+
+    public void unpin(String shortUrl) {
+        pinned.remove(shortUrl);
+    }
+
+    /**
+     * @return the top-K codes, hottest first: shortUrl, estimated requests and whether it is pinned
+     */
+    public List<Map<String, Object>> hotKeys() {
+        HeavyHitters sketch = heavyHitters;
+        if (sketch == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> hotKeys = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : sketch.top()) {
+            Map<String, Object> hotKey = new LinkedHashMap<>();
+            hotKey.put("shortUrl", entry.getKey());
+            hotKey.put("estimatedRequests", entry.getValue() * sampleEvery);
+            hotKey.put("pinned", pinned.containsKey(entry.getKey()));
+            hotKeys.add(hotKey);
+        }
+        return hotKeys;
+    }
+
+    @Scheduled(fixedRateString = "${hotkeys.refresh-interval-ms:10000}")
+    public void refresh() {
+        HeavyHitters sketch = heavyHitters;
+        if (sketch == null) {
+            return;
+        }
+        sketch.decay();
+        pinned.keySet().removeIf(shortUrl -> {
+            boolean cooled = !sketch.isTop(shortUrl) || sketch.estimate(shortUrl) * sampleEvery < minRequests / 2;
+            if (cooled) {
+                log.info("Unpinned shortUrl={}", shortUrl);
+            }
+            return cooled;
+        });
+    }
+}
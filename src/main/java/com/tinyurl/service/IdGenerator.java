@@ -0,0 +1,42 @@
+package com.tinyurl.service;
+
+import com.tinyurl.model.SnowflakeId;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source of globally unique ids for new short urls.
+ * Selected with {@code snowflake.generator.mode}: remote (default) or embedded.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return the next unique id
+     */
+    SnowflakeId getNextId();
+
+    /**
+     * Non-blocking variant of {@link #getNextId()} for the reactive serving stack.
+     * By default the blocking call runs on the bounded elastic scheduler.
+     *
+     * @return the next unique id
+     */
+    default Mono<SnowflakeId> getNextIdAsync() {
+        return Mono.fromCallable(this::getNextId).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param count number of ids
+     * @return {@code count} unique ids, in the order they were generated
+     */
+    default List<SnowflakeId> getNextIds(int count) {
+        List<SnowflakeId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(getNextId());
+        }
+        return ids;
+    }
+}
@@ -1,20 +1,41 @@
 package com.tinyurl.service;
 
+import com.tinyurl.metrics.PerformanceMetrics;
 import com.tinyurl.metrics.TimedOperation;
 import com.tinyurl.model.SnowflakeId;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_BATCH_URL;
 import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NEXT_ID_URL;
 
+/**
+ * Fetches unique ids from the Snowflake ID generator.
+ * <ul>
+ *     <li>Default: one blocking call to the generator per id</li>
+ *     <li>Lease mode: ids are fetched in batches into a lock-free local buffer,
+ *     which is refilled in the background once it drops below the low-water mark</li>
+ *     <li>Leased ids older than {@code snowflake.generator.lease.max-age-ms} are discarded, so a code's
+ *     Snowflake timestamp stays close to when it was created (see {@link ShortUrlFilter})</li>
+ * </ul>
+ */
 @Service
 @Slf4j
-public class KeyFetchingService {
+@ConditionalOnProperty(name = "snowflake.generator.mode", havingValue = "remote", matchIfMissing = true)
+public class KeyFetchingService implements IdGenerator {
 
     @Value("${snowflake.generator.baseUrl}")
     private String baseUrl;
@@ -22,33 +43,196 @@ public class KeyFetchingService {
     @Value("${snowflake.generator.timeout-ms:5000}")
     private int timeoutMs;
 
+    @Value("${snowflake.generator.batch-max-count:1000}")
+    private int batchMaxCount;
+
+    @Value("${snowflake.generator.lease.enabled:false}")
+    private boolean leaseEnabled;
+
+    @Value("${snowflake.generator.lease.batch-size:1000}")
+    private int leaseBatchSize;
+
+    @Value("${snowflake.generator.lease.low-water-mark:250}")
+    private int leaseLowWaterMark;
+
+    @Value("${snowflake.generator.lease.max-age-ms:300000}")
+    private long leaseMaxAgeMs;
+
     private final WebClient.Builder webClientBuilder;
+    private final PerformanceMetrics performanceMetrics;
     private WebClient webClient;
 
-    public KeyFetchingService(WebClient.Builder webClientBuilder) {
+    // ConcurrentLinkedQueue.size() is O(n), so the depth is tracked separately
+    private final Queue<SnowflakeId> leasedIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger leasedDepth = new AtomicInteger();
+    private final AtomicBoolean refillInFlight = new AtomicBoolean();
+
+    public KeyFetchingService(WebClient.Builder webClientBuilder, PerformanceMetrics performanceMetrics) {
         this.webClientBuilder = webClientBuilder;
+        this.performanceMetrics = performanceMetrics;
     }
 
     /**
-     * Calls the ID generator's /next endpoint with timeout.
+     * Returns the next id, from the local lease buffer when lease mode is enabled.
+     * If the buffer is drained faster than it is refilled, falls back to a single call to the generator.
      *
      * @return a snowflake id
      * @throws RuntimeException if the service is unavailable or times out
      */
+    @Override
     @TimedOperation("getNextId")
     public SnowflakeId getNextId() {
+        if (!leaseEnabled) {
+            return fetchNextId();
+        }
+
+        SnowflakeId leased = pollLeased();
+        if (leased != null) {
+            return leased;
+        }
+
+        log.warn("Id lease buffer is empty, falling back to a single fetch");
+        performanceMetrics.increment("idLease.fallback");
+        refillAsync();
+        return fetchNextId();
+    }
+
+    /**
+     * Non-blocking {@link #getNextId()}: a leased id if one is buffered, otherwise the /next call
+     * is returned as a Mono instead of being blocked on.
+     *
+     * @return a snowflake id
+     */
+    @Override
+    public Mono<SnowflakeId> getNextIdAsync() {
+        if (leaseEnabled) {
+            SnowflakeId leased = pollLeased();
+            if (leased != null) {
+                return Mono.just(leased);
+            }
+            performanceMetrics.increment("idLease.fallback");
+            refillAsync();
+        }
+        return fetchNextIdAsync();
+    }
+
+    /**
+     * Returns {@code count} ids: from the lease buffer first when lease mode is enabled,
+     * the rest with as few calls to the generator's /batch endpoint as possible.
+     *
+     * @param count number of ids
+     * @return the ids, in the order they were generated
+     * @throws RuntimeException if the service is unavailable or times out
+     */
+    @Override
+    @TimedOperation("getNextIds")
+    public List<SnowflakeId> getNextIds(int count) {
+        List<SnowflakeId> ids = new ArrayList<>(count);
+        if (leaseEnabled) {
+            SnowflakeId leased;
+            while (ids.size() < count && (leased = pollLeased()) != null) {
+                ids.add(leased);
+            }
+        }
+        while (ids.size() < count) {
+            List<SnowflakeId> batch = fetchBatch(Math.min(count - ids.size(), batchMaxCount))
+                    .block();
+            if (batch == null || batch.isEmpty()) {
+                throw new IllegalStateException("Snowflake service returned no ids");
+            }
+            ids.addAll(batch);
+        }
+        return ids;
+    }
+
+    /**
+     * Takes the next leased id that isn't older than the lease max age.
+     *
+     * @return a leased id, or null if the buffer is empty
+     */
+    private SnowflakeId pollLeased() {
+        SnowflakeId leased;
+        while ((leased = leasedIds.poll()) != null) {
+            if (leasedDepth.decrementAndGet() < leaseLowWaterMark) {
+                refillAsync();
+            }
+            if (SnowflakeId.issuedAt(leased.getId()) >= System.currentTimeMillis() - leaseMaxAgeMs) {
+                return leased;
+            }
+            performanceMetrics.increment("idLease.expired");
+        }
+        return null;
+    }
+
+    /**
+     * Calls the ID generator's /next endpoint with timeout.
+     *
+     * @return a snowflake id
+     */
+    private SnowflakeId fetchNextId() {
         log.debug("Getting next id from Snowflake service");
+        return fetchNextIdAsync().block();
+    }
 
+    private Mono<SnowflakeId> fetchNextIdAsync() {
         return webClient.get()
                 .uri(SNOWFLAKE_NEXT_ID_URL)
                 .retrieve()
                 .bodyToMono(SnowflakeId.class)
-                .timeout(Duration.ofMillis(timeoutMs))
-                .block();
+                .timeout(Duration.ofMillis(timeoutMs));
+    }
+
+    /**
+     * Leases a batch of ids from the generator's /batch endpoint without blocking the caller.
+     * At most one refill is in flight at any time.
+     */
+    private void refillAsync() {
+        if (!refillInFlight.compareAndSet(false, true)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        fetchBatch(leaseBatchSize)
+                .doFinally(signal -> refillInFlight.set(false))
+                .subscribe(
+                        ids -> onRefill(ids, System.nanoTime() - start),
+                        error -> log.warn("Failed to lease ids from Snowflake service: {}", error.getMessage()));
+    }
+
+    /**
+     * Calls the ID generator's /batch endpoint with timeout.
+     */
+    private Mono<List<SnowflakeId>> fetchBatch(int count) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path(SNOWFLAKE_BATCH_URL)
+                        .queryParam("count", count)
+                        .build())
+                .retrieve()
+                .bodyToFlux(SnowflakeId.class)
+                .collectList()
+                .timeout(Duration.ofMillis(timeoutMs));
+    }
+
+    private void onRefill(List<SnowflakeId> ids, long durationNanos) {
+        leasedIds.addAll(ids);
+        int depth = leasedDepth.addAndGet(ids.size());
+        performanceMetrics.record("idLease.refill", durationNanos);
+        log.debug("Leased {} ids in {}ms, buffer depth={}", ids.size(), durationNanos / 1_000_000, depth);
+    }
+
+    /**
+     * @return number of leased ids waiting in the local buffer
+     */
+    public int getLeasedDepth() {
+        return leasedDepth.get();
     }
 
     @PostConstruct
     public void initWebClient() {
         this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+        if (leaseEnabled) {
+            performanceMetrics.gauge("idLease.depth", leasedDepth, AtomicInteger::get);
+            refillAsync();
+        }
     }
 }
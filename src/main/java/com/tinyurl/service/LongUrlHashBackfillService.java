@@ -0,0 +1,70 @@
+package com.tinyurl.service;
+
+import com.tinyurl.repository.UrlRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.NavigableMap;
+
+/**
+ * Backfills tiny_urls.long_url_hash for rows created before the column existed.
+ * <ul>
+ *     <li>Runs once in the background after startup, in chunks of dedup.backfill.batch-size rows</li>
+ *     <li>Rows are found through idx_long_url_hash (WHERE long_url_hash IS NULL), so it's cheap once done</li>
+ *     <li>Long urls are normalized before hashing, like on POST /shorten, so a row stored as "HTTP://Example.com/a"
+ *     is found when "http://example.com/a" is shortened</li>
+ *     <li>Rows whose normalized url another row already holds with a hash (the same url stored twice before dedup by
+ *     hash) are skipped and keep a NULL hash; they still resolve, dedup returns the other row</li>
+ *     <li>Until a row is backfilled, shortening its long url again creates a new short url</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LongUrlHashBackfillService {
+
+    private final UrlRepository urlRepository;
+
+    @Value("${dedup.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dedup.backfill.batch-size:5000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (enabled) {
+            Thread.ofVirtual().name("long-url-hash-backfill").start(this::backfill);
+        }
+    }
+
+    public long backfill() {
+        long total = 0;
+        long skipped = 0;
+        try {
+            // skipped rows keep a NULL hash, the cursor moves past them
+            String after = "";
+            while (true) {
+                NavigableMap<String, String> rows = urlRepository.findWithoutLongUrlHash(after, batchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                int updated = urlRepository.backfillLongUrlHashes(rows);
+                total += updated;
+                skipped += rows.size() - updated;
+                after = rows.lastKey();
+                log.debug("Backfilled long_url_hash for {} rows ({} so far)", updated, total);
+            }
+        } catch (Exception e) {
+            log.error("long_url_hash backfill failed after {} rows: {}", total, e.getMessage());
+        }
+        if (total > 0 || skipped > 0) {
+            log.info("Backfilled long_url_hash for {} rows, skipped {} whose long url is already stored", total, skipped);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,92 @@
+package com.tinyurl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.configuration.TtlRefreshPolicy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Non-blocking {@link UrlCacheService} for the reactive serving stack: same L1 and pinned hot codes, same keys or buckets, same TTL
+ * refresh policy, over {@link ReactiveStringRedisTemplate}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUrlCacheService {
+
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final Duration cacheTtl;
+    private final Cache<String, String> urlNearCache;
+    private final TtlRefreshPolicy ttlRefreshPolicy;
+    private final HotKeyTracker hotKeyTracker;
+    private final RedisLayout redisLayout;
+
+    /**
+     * @param shortUrl the short URL code
+     * @return the long URL if cached, empty otherwise
+     */
+    public Mono<String> get(String shortUrl) {
+        String longUrl = hotKeyTracker.pinned(shortUrl);
+        if (longUrl == null) {
+            longUrl = urlNearCache.getIfPresent(shortUrl);
+        }
+        if (longUrl != null) {
+            hotKeyTracker.record(shortUrl, longUrl);
+            return Mono.just(longUrl);
+        }
+        return getFromRedis(shortUrl)
+                .doOnNext(value -> {
+                    urlNearCache.put(shortUrl, value);
+                    hotKeyTracker.record(shortUrl, value);
+                });
+    }
+
+    private Mono<String> getFromRedis(String shortUrl) {
+        String key = redisLayout.urlKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            return reactiveRedisTemplate.<String, String>opsForHash().get(key, shortUrl);
+        }
+        if (!ttlRefreshPolicy.shouldRefresh()) {
+            return reactiveRedisTemplate.opsForValue().get(key);
+        }
+        if (ttlRefreshPolicy.getMode() == TtlRefreshPolicy.Mode.LUA) {
+            return reactiveRedisTemplate.execute(UrlCacheService.GET_AND_EXPIRE_SCRIPT, List.of(key),
+                    List.of(String.valueOf(cacheTtl.toMillis()))).next();
+        }
+        return reactiveRedisTemplate.opsForValue().getAndExpire(key, cacheTtl);
+    }
+
+    /**
+     * @param shortUrl the short URL code
+     * @param longUrl  the original long URL
+     */
+    public Mono<Boolean> put(String shortUrl, String longUrl) {
+        urlNearCache.put(shortUrl, longUrl);
+        String key = redisLayout.urlKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            return reactiveRedisTemplate.execute(UrlCacheService.BUCKET_PUT_SCRIPT, List.of(key),
+                    List.of(UrlCacheService.bucketTtlMillis(cacheTtl), shortUrl, longUrl)).next().thenReturn(true);
+        }
+        return reactiveRedisTemplate.opsForValue().set(key, longUrl, cacheTtl);
+    }
+
+    /**
+     * Counts a click in Redis, for when {@link ClickTrackingService#recordLocally} can't buffer it.
+     */
+    public Mono<Long> incrementClicks(String shortUrl) {
+        String key = redisLayout.clickKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            return reactiveRedisTemplate.opsForHash().increment(key, shortUrl, 1);
+        }
+        return reactiveRedisTemplate.opsForValue().increment(key);
+    }
+}
@@ -0,0 +1,185 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.model.SnowflakeId;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+
+/**
+ * Negative cache for short codes that were never issued, so scanner and typo traffic on GET gets a 404 without I/O.
+ * <ul>
+ *     <li>A Bloom filter of all short codes, built from tiny_urls by {@link ShortUrlFilterLoader} and
+ *     updated by every successful insert on this node</li>
+ *     <li>Other nodes' inserts are not in the filter. Codes are Snowflake ids, so a code whose id timestamp is
+ *     newer than the filter's watermark (minus {@code bloom.id-age-tolerance-ms}) is always passed through</li>
+ *     <li>Codes whose id timestamp is more than the tolerance in the future can't have been issued yet</li>
+ *     <li>Timestamps count from {@code snowflake.epoch-ms}; {@link ShortUrlFilterLoader} checks an id from the
+ *     generator against it before loading, and leaves the filter unloaded if it doesn't match</li>
+ *     <li>Until the filter is loaded every code is passed through</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ShortUrlFilter {
+
+    private final Base62Encoder base62Encoder;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${bloom.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bloom.expected-insertions:10000000}")
+    private long expectedInsertions;
+
+    @Value("${bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${bloom.id-age-tolerance-ms:600000}")
+    private long idAgeToleranceMs;
+
+    @Value("${snowflake.epoch-ms:" + SNOWFLAKE_EPOCH_MS + "}")
+    private long epochMs = SNOWFLAKE_EPOCH_MS;
+
+    private volatile BloomFilter filter;
+
+    // codes issued before this time (epoch millis) are in the filter; Long.MAX_VALUE until it is loaded
+    private volatile long watermark = Long.MAX_VALUE;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        filter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        log.info("Short url Bloom filter sized for {} codes at fpp={}: {} bits, {} hashes, {} MB",
+                expectedInsertions, falsePositiveRate, filter.getBitSize(), filter.getNumHashes(),
+                filter.memoryBytes() / (1024 * 1024));
+        performanceMetrics.gauge("bloom.memory.bytes", this, f -> f.filter.memoryBytes());
+        performanceMetrics.gauge("bloom.fpp.configured", this, f -> f.falsePositiveRate);
+        performanceMetrics.gauge("bloom.fpp.estimated", this, f -> f.filter.estimatedFalsePositiveRate());
+        performanceMetrics.gauge("bloom.codes.approximate", this, f -> f.filter.approximateCount());
+        performanceMetrics.gauge("bloom.ready", this, f -> f.isReady() ? 1 : 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return watermark != Long.MAX_VALUE;
+    }
+
+    /**
+     * @param shortUrl a valid Base62 short code
+     * @return false if the code definitely doesn't exist, true if it has to be looked up
+     */
+    public boolean mightExist(String shortUrl) {
+        if (!enabled || !isReady()) {
+            return true;
+        }
+        long issuedAt = SnowflakeId.issuedAt(base62Encoder.decode(shortUrl), epochMs);
+        boolean notIssuedYet = issuedAt > System.currentTimeMillis() + idAgeToleranceMs;
+        if (!notIssuedYet && (issuedAt >= watermark - idAgeToleranceMs || filter.mightContain(shortUrl))) {
+            return true;
+        }
+        performanceMetrics.increment("bloom.rejected");
+        return false;
+    }
+
+    /**
+     * Checks that the generator's ids carry the current time under snowflake.epoch-ms, which the watermark and the
+     * not-issued-yet check rely on.
+     *
+     * @param id a freshly issued id
+     * @return false if its timestamp is more than bloom.id-age-tolerance-ms away from now
+     */
+    public boolean checkIdTimestamp(long id) {
+        long offsetMs = SnowflakeId.issuedAt(id, epochMs) - System.currentTimeMillis();
+        if (Math.abs(offsetMs) <= idAgeToleranceMs) {
+            return true;
+        }
+        log.error("Id {} from the generator is {}ms off the clock with snowflake.epoch-ms={}, the generator uses another "
+                + "epoch or id layout: the Bloom filter is not loaded, all codes will be looked up", id, offsetMs, epochMs);
+        return false;
+    }
+
+    /**
+     * Records a code inserted by this node.
+     */
+    public void put(String shortUrl) {
+        if (enabled) {
+            filter.put(shortUrl);
+        }
+    }
+
+    /**
+     * Marks the filter as complete for all codes issued before the watermark.
+     *
+     * @param watermark epoch millis taken before the codes were read
+     */
+    public void markReady(long watermark) {
+        this.watermark = watermark;
+        log.info("Short url Bloom filter ready: ~{} codes, estimated fpp={}, watermark={}",
+                filter.approximateCount(), String.format("%.5f", filter.estimatedFalsePositiveRate()), watermark);
+    }
+
+    /**
+     * Loads a snapshot written by {@link #writeSnapshot}. Codes put since startup are kept.
+     *
+     * @return false if the snapshot was written with a different size or is older than maxAgeMs
+     */
+    public boolean restoreSnapshot(Path path, long maxAgeMs) throws IOException {
+        BloomFilter.Snapshot snapshot;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            snapshot = BloomFilter.readFrom(in);
+        }
+        if (snapshot.watermark() < System.currentTimeMillis() - maxAgeMs) {
+            log.info("Bloom filter snapshot {} is older than {}ms, ignoring it", path, maxAgeMs);
+            return false;
+        }
+        BloomFilter restored = snapshot.filter();
+        if (restored.getBitSize() != filter.getBitSize() || restored.getNumHashes() != filter.getNumHashes()) {
+            log.info("Bloom filter snapshot {} was written with a different size, ignoring it", path);
+            return false;
+        }
+        restored.putAll(filter);
+        filter = restored;
+        // codes put into the old filter between putAll and the swap are issued after the snapshot watermark
+        markReady(snapshot.watermark());
+        return true;
+    }
+
+    /**
+     * Writes the filter to a temporary file and moves it into place.
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        if (!isReady()) {
+            return;
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            filter.writeTo(out, watermark);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote Bloom filter snapshot to {}", path);
+    }
+}
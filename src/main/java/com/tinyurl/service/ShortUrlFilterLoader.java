@@ -0,0 +1,107 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.UrlRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads the {@link ShortUrlFilter} after startup, in the background.
+ * <ul>
+ *     <li>Only if an id from the generator matches snowflake.epoch-ms, see {@link ShortUrlFilter#checkIdTimestamp}</li>
+ *     <li>From the snapshot at {@code bloom.snapshot.path} if it is younger than {@code bloom.snapshot.max-age-ms}</li>
+ *     <li>Otherwise by streaming every short_url from tiny_urls, then writing a new snapshot</li>
+ *     <li>The snapshot is also written on shutdown</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ShortUrlFilterLoader {
+
+    private final ShortUrlFilter shortUrlFilter;
+    private final UrlRepository urlRepository;
+    private final IdGenerator idGenerator;
+    private final PerformanceMetrics performanceMetrics;
+
+    @Value("${bloom.snapshot.path:}")
+    private String snapshotPath;
+
+    @Value("${bloom.snapshot.max-age-ms:86400000}")
+    private long snapshotMaxAgeMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (shortUrlFilter.isEnabled()) {
+            Thread.ofVirtual().name("bloom-filter-loader").start(this::load);
+        }
+    }
+
+    public void load() {
+        if (!checkIdTimestamp() || restoreSnapshot()) {
+            return;
+        }
+        try {
+            // taken before the first row is read: codes issued earlier are either streamed or put by this node
+            long watermark = System.currentTimeMillis();
+            long start = System.nanoTime();
+            urlRepository.forEachShortUrl(shortUrlFilter::put);
+            long durationNanos = System.nanoTime() - start;
+            performanceMetrics.record("bloom.build", durationNanos);
+            log.info("Built short url Bloom filter from tiny_urls in {}ms", durationNanos / 1_000_000);
+            shortUrlFilter.markReady(watermark);
+        } catch (Exception e) {
+            log.error("Failed to build short url Bloom filter, all codes will be looked up: {}", e.getMessage());
+            return;
+        }
+        writeSnapshot();
+    }
+
+    private boolean checkIdTimestamp() {
+        try {
+            return shortUrlFilter.checkIdTimestamp(idGenerator.getNextId().getId());
+        } catch (Exception e) {
+            log.error("Failed to get an id to check the Bloom filter against, all codes will be looked up: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshot() {
+        if (snapshotPath.isBlank() || !shortUrlFilter.isReady()) {
+            return;
+        }
+        try {
+            shortUrlFilter.writeSnapshot(Path.of(snapshotPath));
+        } catch (IOException e) {
+            log.warn("Failed to write Bloom filter snapshot to {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private boolean restoreSnapshot() {
+        if (snapshotPath.isBlank() || !Files.exists(Path.of(snapshotPath))) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            boolean restored = shortUrlFilter.restoreSnapshot(Path.of(snapshotPath), snapshotMaxAgeMs);
+            if (restored) {
+                log.info("Restored short url Bloom filter from {} in {}ms", snapshotPath,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+            return restored;
+        } catch (IOException e) {
+            log.warn("Failed to read Bloom filter snapshot {}, rebuilding: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,22 +1,47 @@
 package com.tinyurl.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.configuration.TtlRefreshPolicy;
+import com.tinyurl.metrics.OperationTimer;
+import com.tinyurl.metrics.PerformanceMetrics;
 import com.tinyurl.metrics.TimedOperation;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-
-import static com.tinyurl.ApplicationConstants.CACHE_KEY_PREFIX;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Strategy:
  * <ul>
+ *  <li>L1: bounded in-process cache keyed by shortUrl (see {@link com.tinyurl.configuration.NearCacheConfig}),
+ *  plus the hot codes pinned by {@link HotKeyTracker}, which are never evicted</li>
+ *  <li>L2: Redis, shared by all instances</li>
  *  <li>Cache key format: "url:{shortUrl}" → longUrl</li>
  *  <li>TTL: 24 hours (configurable)</li>
- *  <li>On cache hit: Refresh TTL (keeps hot URLs in cache longer)</li>
+ *  <li>On cache hit: Refresh TTL in the same round trip (GETEX), sampled (keeps hot URLs in cache longer)</li>
  *  <li>On cache miss: Fetch from DB, populate cache</li>
+ *  <li>cache.redis.layout=buckets ({@link RedisLayout}): the mapping is field {shortUrl} of hash "ub:{bucket}".
+ *  A bucket expires cache TTL (+ up to 10% jitter) after it was created, with all its mappings: hash fields can't
+ *  expire on their own before Redis 7.4, and refreshing the bucket on every write would keep every bucket alive.
+ *  Reads don't extend it, hot links live in the L1 and are re-cached on their next miss. Under maxmemory,
+ *  allkeys-lru evicts whole buckets</li>
  * </ul>
  * Why this strategy works for TinyURL:
  * <ol>
@@ -32,31 +57,126 @@ import static com.tinyurl.ApplicationConstants.CACHE_KEY_PREFIX;
 @RequiredArgsConstructor
 public class UrlCacheService {
 
+    // GETEX equivalent for Redis < 6.2
+    static final RedisScript<String> GET_AND_EXPIRE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('GET', KEYS[1]) " +
+                    "if value then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+                    "return value",
+            String.class);
+
+    // HSET of field/value pairs into a bucket; its TTL is only set when the HSET created it
+    static final RedisScript<Long> BUCKET_PUT_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+                    "if redis.call('PTTL', KEYS[1]) == -1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+                    "return 0",
+            Long.class);
 
     private final StringRedisTemplate redisTemplate;
     private final Duration cacheTtl;
+    private final Cache<String, String> urlNearCache;
+    private final PerformanceMetrics performanceMetrics;
+    private final TtlRefreshPolicy ttlRefreshPolicy;
+    private final HotKeyTracker hotKeyTracker;
+    private final RedisLayout redisLayout;
+
+    // resolved once, the lookup path doesn't go through @TimedOperation
+    private OperationTimer cacheGetTimer;
+    private OperationTimer redisGetTimer;
+
+    @PostConstruct
+    public void initTimers() {
+        cacheGetTimer = performanceMetrics.timer("cache.get");
+        redisGetTimer = performanceMetrics.timer("redis.get");
+    }
 
     /**
      * Get longUrl from cache.
-     * If found, refreshes TTL to keep hot URLs cached longer.
+     * Checks the pinned hot codes and the in-process L1 first; hot links resolve without any I/O.
+     * On an L1 miss falls back to Redis, refreshes the TTL and promotes the entry to L1.
      *
      * @param shortUrl the short URL code
      * @return the long URL if cached, null otherwise
      */
-    @TimedOperation("redis.get")
     public String get(String shortUrl) {
-        String key = CACHE_KEY_PREFIX + shortUrl;
-        String longUrl = redisTemplate.opsForValue().get(key);
+        long start = cacheGetTimer.start();
+        try {
+            String longUrl = hotKeyTracker.pinned(shortUrl);
+            if (longUrl == null) {
+                longUrl = urlNearCache.getIfPresent(shortUrl);
+            }
+            if (longUrl != null) {
+                log.debug("L1 HIT for shortUrl={}", shortUrl);
+                // pinned codes are counted too, or they would cool down and be unpinned
+                hotKeyTracker.record(shortUrl, longUrl);
+                return longUrl;
+            }
 
-        if (longUrl != null) {
-            // Refresh TTL on access - hot URLs stay in cache
-            redisTemplate.expire(key, cacheTtl);
-            log.debug("Cache HIT for shortUrl={}", shortUrl);
-        } else {
-            log.debug("Cache MISS for shortUrl={}", shortUrl);
+            long redisStart = redisGetTimer.start();
+            try {
+                longUrl = getFromRedis(shortUrl);
+            } finally {
+                redisGetTimer.stop(redisStart);
+            }
+            if (longUrl != null) {
+                urlNearCache.put(shortUrl, longUrl);
+                hotKeyTracker.record(shortUrl, longUrl);
+                log.debug("Cache HIT for shortUrl={}", shortUrl);
+            } else {
+                log.debug("Cache MISS for shortUrl={}", shortUrl);
+            }
+
+            return longUrl;
+        } finally {
+            cacheGetTimer.stop(start);
         }
+    }
 
-        return longUrl;
+    /**
+     * Get many longUrls from cache without refreshing TTLs: L1 first, then one MGET (pipelined HGETs with buckets)
+     * for the rest.
+     * Redis hits are not promoted to L1, bulk lookups say nothing about which urls are hot.
+     *
+     * @param shortUrls the short URL codes
+     * @return shortUrl → longUrl for the cached ones
+     */
+    @TimedOperation("cache.getAll")
+    public Map<String, String> getAll(Collection<String> shortUrls) {
+        Map<String, String> found = new HashMap<>(urlNearCache.getAllPresent(shortUrls));
+        List<String> misses = shortUrls.stream()
+                .filter(shortUrl -> !found.containsKey(shortUrl))
+                .distinct()
+                .toList();
+        if (misses.isEmpty()) {
+            return found;
+        }
+
+        List<?> values = performanceMetrics.timeAndReturn("redis.mget", () -> multiGet(misses));
+        if (values != null) {
+            for (int i = 0; i < misses.size(); i++) {
+                if (values.get(i) != null) {
+                    found.put(misses.get(i), (String) values.get(i));
+                }
+            }
+        }
+        log.debug("Cache HIT for {} of {} shortUrls", found.size(), shortUrls.size());
+        return found;
+    }
+
+    /**
+     * Single round trip read. Sampled reads also refresh the TTL - hot URLs stay in cache.
+     */
+    private String getFromRedis(String shortUrl) {
+        String key = redisLayout.urlKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            return redisTemplate.<String, String>opsForHash().get(key, shortUrl);
+        }
+        if (!ttlRefreshPolicy.shouldRefresh()) {
+            return redisTemplate.opsForValue().get(key);
+        }
+        if (ttlRefreshPolicy.getMode() == TtlRefreshPolicy.Mode.LUA) {
+            return redisTemplate.execute(GET_AND_EXPIRE_SCRIPT, List.of(key), String.valueOf(cacheTtl.toMillis()));
+        }
+        return redisTemplate.opsForValue().getAndExpire(key, cacheTtl);
     }
 
     /**
@@ -67,11 +187,40 @@ public class UrlCacheService {
      */
     @TimedOperation("redis.put")
     public void put(String shortUrl, String longUrl) {
-        String key = CACHE_KEY_PREFIX + shortUrl;
-        redisTemplate.opsForValue().set(key, longUrl, cacheTtl);
+        String key = redisLayout.urlKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            redisTemplate.execute(BUCKET_PUT_SCRIPT, List.of(key), bucketTtlMillis(cacheTtl), shortUrl, longUrl);
+        } else {
+            redisTemplate.opsForValue().set(key, longUrl, cacheTtl);
+        }
+        urlNearCache.put(shortUrl, longUrl);
         log.debug("Cached shortUrl={} with TTL={}", shortUrl, cacheTtl);
     }
 
+    /**
+     * Put many mappings in Redis with one pipelined round trip.
+     * The L1 is left alone: bulk created urls aren't hot yet and would push out entries that are.
+     *
+     * @param mappings shortUrl → longUrl
+     */
+    @TimedOperation("redis.putAll")
+    public void putAll(Map<String, String> mappings) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        if (redisLayout.isBucketed()) {
+            putAllInBuckets(mappings);
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            mappings.forEach((shortUrl, longUrl) -> connection.stringCommands().set(
+                    toBytes(redisLayout.urlKey(shortUrl)), toBytes(longUrl),
+                    Expiration.from(cacheTtl), RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+        log.debug("Cached {} shortUrls with TTL={}", mappings.size(), cacheTtl);
+    }
+
     /**
      * Evict a URL from cache (rarely needed since URLs are immutable).
      * Useful for admin operations or testing.
@@ -79,9 +228,59 @@ public class UrlCacheService {
      * @param shortUrl the short URL code to evict
      */
     public void evict(String shortUrl) {
-        String key = CACHE_KEY_PREFIX + shortUrl;
-        redisTemplate.delete(key);
+        String key = redisLayout.urlKey(shortUrl);
+        if (redisLayout.isBucketed()) {
+            redisTemplate.opsForHash().delete(key, shortUrl);
+        } else {
+            redisTemplate.delete(key);
+        }
+        urlNearCache.invalidate(shortUrl);
+        hotKeyTracker.unpin(shortUrl);
         log.debug("Evicted shortUrl={} from cache", shortUrl);
     }
-}
 
+    // MGET, or one pipelined HGET per code with buckets
+    private List<?> multiGet(List<String> shortUrls) {
+        if (!redisLayout.isBucketed()) {
+            return redisTemplate.opsForValue().multiGet(shortUrls.stream().map(redisLayout::urlKey).toList());
+        }
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            shortUrls.forEach(shortUrl -> connection.hashCommands().hGet(
+                    toBytes(redisLayout.urlKey(shortUrl)), toBytes(shortUrl)));
+            return null;
+        });
+    }
+
+    // one script call per bucket: {key, ttl, code, longUrl, code, longUrl, ...}, all pipelined
+    private void putAllInBuckets(Map<String, String> mappings) {
+        Map<String, List<String>> argsByBucket = new HashMap<>();
+        mappings.forEach((shortUrl, longUrl) -> {
+            List<String> args = argsByBucket.computeIfAbsent(redisLayout.urlKey(shortUrl), key -> {
+                List<String> bucketArgs = new ArrayList<>();
+                bucketArgs.add(key);
+                bucketArgs.add(bucketTtlMillis(cacheTtl));
+                return bucketArgs;
+            });
+            args.add(shortUrl);
+            args.add(longUrl);
+        });
+        byte[] script = toBytes(BUCKET_PUT_SCRIPT.getScriptAsString());
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (List<String> args : argsByBucket.values()) {
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1,
+                        args.stream().map(UrlCacheService::toBytes).toArray(byte[][]::new));
+            }
+            return null;
+        });
+    }
+
+    // jitter, so buckets filled together (e.g. by the warm-up) don't all expire together
+    static String bucketTtlMillis(Duration cacheTtl) {
+        long ttlMillis = cacheTtl.toMillis();
+        return String.valueOf(ttlMillis + ThreadLocalRandom.current().nextLong(ttlMillis / 10 + 1));
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,19 +1,49 @@
 package com.tinyurl.utils;
 
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import static com.tinyurl.ApplicationConstants.BASE;
 import static com.tinyurl.ApplicationConstants.BASE62_ALPHABET;
 
 /**
- * A utility class to encode longs into Base62 strings
+ * A utility class to encode longs into Base62 strings and decode them back
  * Character Set: 0-9, A-Z, a-z
+ * <p>
+ * Both directions are table driven. {@link #encodeTo} and {@link #decode} don't allocate,
+ * so short codes can be validated on the GET path before touching any store.
  */
 @Component
-@Slf4j
 public class Base62Encoder {
 
+    /**
+     * Length of the longest encoding of a non-negative long (Long.MAX_VALUE → "AzL8n0Y58m7").
+     */
+    public static final int MAX_LENGTH = 11;
+
+    /**
+     * Returned by {@link #decode} for anything that is not a valid Base62 encoded non-negative long.
+     */
+    public static final long INVALID = -1L;
+
+    private static final byte[] ENCODE_TABLE = BASE62_ALPHABET.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DECODE_TABLE = new byte[128];
+    // POWERS[i] = 62^i, the smallest value that needs i + 1 digits
+    private static final long[] POWERS = new long[MAX_LENGTH];
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        for (int i = 0; i < ENCODE_TABLE.length; i++) {
+            DECODE_TABLE[ENCODE_TABLE[i]] = (byte) i;
+        }
+        POWERS[0] = 1;
+        for (int i = 1; i < MAX_LENGTH; i++) {
+            POWERS[i] = POWERS[i - 1] * BASE;
+        }
+    }
+
     /**
      * Encodes a positive long identifier into a Base62 string.
      *
@@ -22,19 +52,92 @@ public class Base62Encoder {
      * @throws IllegalArgumentException if the value is negative.
      */
     public String encode(long value) {
-        log.debug("Encoding value={}", value);
+        return encode(value, 0);
+    }
+
+    /**
+     * Encodes a non-negative long into a Base62 string left-padded with '0' to at least {@code width} characters.
+     *
+     * @param value The non-negative long value to encode.
+     * @param width The minimum length of the result, 0 for no padding.
+     * @return The Base62 encoded string.
+     * @throws IllegalArgumentException if the value is negative or the width is out of range.
+     */
+    public String encode(long value, int width) {
+        byte[] buffer = new byte[MAX_LENGTH];
+        int length = encodeTo(value, width, buffer, 0);
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encodes a non-negative long into {@code destination} starting at {@code offset}, without allocating.
+     *
+     * @param value       The non-negative long value to encode.
+     * @param width       The minimum number of characters to write (left-padded with '0'), 0 for no padding.
+     * @param destination Buffer with room for at least max(width, {@link #MAX_LENGTH}) bytes after offset.
+     * @param offset      Index of the first byte to write.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException if the value is negative or the width is out of range.
+     */
+    public int encodeTo(long value, int width, byte[] destination, int offset) {
         if (value < 0) {
             throw new IllegalArgumentException("Value must be non-negative.");
         }
+        if (width < 0 || width > MAX_LENGTH) {
+            throw new IllegalArgumentException("Width must be between 0 and " + MAX_LENGTH);
+        }
 
-        StringBuilder sb = new StringBuilder();
-        while (value > 0) {
-            int remainder = (int) (value % BASE);
-            sb.append(BASE62_ALPHABET.charAt(remainder));
+        int digits = 1;
+        while (digits < MAX_LENGTH && value >= POWERS[digits]) {
+            digits++;
+        }
+        int length = Math.max(digits, width);
+
+        int position = offset + length;
+        do {
+            destination[--position] = ENCODE_TABLE[(int) (value % BASE)];
             value /= BASE;
+        } while (value > 0);
+        while (position > offset) {
+            destination[--position] = '0';
         }
+        return length;
+    }
 
-        return sb.reverse().toString();
+    /**
+     * Decodes a Base62 string back into the long it was encoded from, without allocating.
+     *
+     * @param encoded The Base62 string, possibly zero padded.
+     * @return The decoded non-negative value, or {@link #INVALID} if the input is null, empty,
+     * contains a character outside the alphabet or doesn't fit in a long.
+     */
+    public long decode(CharSequence encoded) {
+        if (encoded == null) {
+            return INVALID;
+        }
+        int length = encoded.length();
+        if (length == 0) {
+            return INVALID;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+            int digit = c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / BASE) {
+                return INVALID;
+            }
+            value = value * BASE + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @param encoded candidate short code
+     * @return true if the code could have been produced by {@link #encode}
+     */
+    public boolean isValid(CharSequence encoded) {
+        return decode(encoded) != INVALID;
     }
 
 }
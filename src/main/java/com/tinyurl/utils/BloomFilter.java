@@ -0,0 +1,186 @@
+package com.tinyurl.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over short codes.
+ * <ul>
+ *     <li>Sized from the expected number of codes and the target false positive rate</li>
+ *     <li>Bits live in an AtomicLongArray, so {@link #put} and {@link #mightContain} can run concurrently</li>
+ *     <li>The k bit positions are derived from one 64-bit hash of the code (double hashing)</li>
+ * </ul>
+ * No false negatives: {@link #mightContain} returns false only for codes that were never put.
+ */
+public class BloomFilter {
+
+    private static final int SNAPSHOT_MAGIC = 0x544E5942; // "TNYB"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int numHashes;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    private BloomFilter(long bitSize, int numHashes) {
+        this.words = new AtomicLongArray(Math.toIntExact(bitSize / Long.SIZE));
+        this.bitSize = bitSize;
+        this.numHashes = numHashes;
+    }
+
+    /**
+     * @param expectedInsertions number of codes the filter is sized for
+     * @param falsePositiveRate  target false positive rate once expectedInsertions codes are in, e.g. 0.01
+     * @return an empty filter
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        double optimalBits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bitSize = Math.max(Long.SIZE, ((long) Math.ceil(optimalBits / Long.SIZE)) * Long.SIZE);
+        int numHashes = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitSize, numHashes);
+    }
+
+    /**
+     * @param code a short code
+     * @return true if the code was not in the filter before, i.e. at least one of its bits was unset
+     */
+    public boolean put(CharSequence code) {
+        long hash1 = Hashing.fnv1aMix(code);
+        long hash2 = Hashing.mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        long combined = hash1;
+        for (int i = 0; i < numHashes; i++) {
+            changed |= setBit(Long.remainderUnsigned(combined, bitSize));
+            combined += hash2;
+        }
+        return changed;
+    }
+
+    /**
+     * @param code a short code
+     * @return false if the code was definitely never put, true if it probably was
+     */
+    public boolean mightContain(CharSequence code) {
+        long hash1 = Hashing.fnv1aMix(code);
+        long hash2 = Hashing.mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        long combined = hash1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Long.remainderUnsigned(combined, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    /**
+     * Adds all codes of another filter with the same size to this one.
+     *
+     * @param other a filter created with the same parameters
+     */
+    public void putAll(BloomFilter other) {
+        if (other.bitSize != bitSize || other.numHashes != numHashes) {
+            throw new IllegalArgumentException("Bloom filters have different sizes");
+        }
+        for (int i = 0; i < words.length(); i++) {
+            long otherWord = other.words.get(i);
+            long previous = words.getAndAccumulate(i, otherWord, (current, bits) -> current | bits);
+            bitCount.addAndGet(Long.bitCount(otherWord & ~previous));
+        }
+    }
+
+    /**
+     * @return false positive rate for the current fill ratio: (set bits / bits) ^ k
+     */
+    public double estimatedFalsePositiveRate() {
+        return Math.pow((double) bitCount.get() / bitSize, numHashes);
+    }
+
+    /**
+     * @return approximate number of distinct codes put so far, estimated from the number of set bits
+     */
+    public long approximateCount() {
+        double unsetRatio = 1 - (double) bitCount.get() / bitSize;
+        return Math.round(-bitSize * Math.log(unsetRatio) / numHashes);
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * @return heap used by the bit array in bytes
+     */
+    public long memoryBytes() {
+        return bitSize / Byte.SIZE;
+    }
+
+    /**
+     * Writes the filter with a caller supplied watermark, e.g. when the codes were read from the database.
+     */
+    public void writeTo(DataOutputStream out, long watermark) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeLong(watermark);
+        out.writeLong(bitSize);
+        out.writeInt(numHashes);
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo}.
+     *
+     * @return the filter and the watermark it was written with
+     * @throws IOException if the stream is not a filter snapshot
+     */
+    public static Snapshot readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Not a Bloom filter snapshot");
+        }
+        long watermark = in.readLong();
+        long bitSize = in.readLong();
+        int numHashes = in.readInt();
+        if (bitSize <= 0 || bitSize % Long.SIZE != 0 || numHashes <= 0) {
+            throw new IOException("Corrupt Bloom filter snapshot");
+        }
+        BloomFilter filter = new BloomFilter(bitSize, numHashes);
+        long bits = 0;
+        for (int i = 0; i < filter.words.length(); i++) {
+            long word = in.readLong();
+            filter.words.set(i, word);
+            bits += Long.bitCount(word);
+        }
+        filter.bitCount.set(bits);
+        return new Snapshot(filter, watermark);
+    }
+
+    public record Snapshot(BloomFilter filter, long watermark) {
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long previous = words.getAndAccumulate(index, mask, (current, bits) -> current | bits);
+        if ((previous & mask) != 0) {
+            return false;
+        }
+        bitCount.incrementAndGet();
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.tinyurl.utils;
+
+/**
+ * Fast non-cryptographic 64-bit hashing of short codes and other keys, shared by the Bloom filter, the heavy hitters
+ * sketch, the shard ring and the Redis buckets.
+ * <ul>
+ *     <li>Stable across JVMs and restarts, unlike String.hashCode (which also collides on Base62 codes, e.g. "Ab" and
+ *     "BC")</li>
+ *     <li>Changing it moves rows between shards and keys between Redis buckets</li>
+ * </ul>
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * @return FNV-1a over the chars, finalized with {@link #mix(long)}
+     */
+    public static long fnv1aMix(CharSequence key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @return the MurmurHash3 64-bit finalizer (fmix64) of value
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93F53F2CCA5L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
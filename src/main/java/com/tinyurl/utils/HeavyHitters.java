@@ -0,0 +1,158 @@
+package com.tinyurl.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming top-K of the most frequent keys: a Count-Min sketch plus a small candidate map.
+ * <ul>
+ *     <li>{@link #add} increments one counter per row and takes the minimum as the estimate
+ *     (never below the true count, above it by at most ~e/width of the total with high probability)</li>
+ *     <li>Keys already in the top-K only update their estimate; a new key is admitted under a lock
+ *     only if its estimate beats the smallest one in a full top-K</li>
+ *     <li>{@link #decay} halves every counter, so the top-K follows recent traffic</li>
+ * </ul>
+ * Counters live in an AtomicLongArray, {@link #add} is lock-free for keys that don't enter the top-K.
+ */
+public class HeavyHitters {
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int widthMask;
+    private final int capacity;
+    private final ConcurrentHashMap<String, Long> top = new ConcurrentHashMap<>();
+
+    // smallest estimate in a full top-K, 0 while there is room
+    private volatile long admissionThreshold;
+
+    private HeavyHitters(int capacity, int width, int depth) {
+        this.counters = new AtomicLongArray(width * depth);
+        this.depth = depth;
+        this.widthMask = width - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param capacity number of keys tracked (K)
+     * @param width    counters per row, rounded up to a power of two
+     * @param depth    rows, each with an independent hash
+     * @return an empty sketch
+     */
+    public static HeavyHitters create(int capacity, int width, int depth) {
+        if (capacity <= 0 || width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Capacity, width and depth must be positive");
+        }
+        int roundedWidth = Integer.highestOneBit(Math.max(2, width) * 2 - 1);
+        return new HeavyHitters(capacity, roundedWidth, depth);
+    }
+
+    /**
+     * Count one occurrence of the key.
+     *
+     * @param key
+     * @return the key's estimated count
+     */
+    public long add(String key) {
+        long hash1 = Hashing.fnv1aMix(key);
+        long hash2 = Hashing.mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        long combined = hash1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, combined)));
+            combined += hash2;
+        }
+        if (top.replace(key, estimate) == null && estimate > admissionThreshold) {
+            admit(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * @param key
+     * @return the key's estimated count, 0 if it was never added
+     */
+    public long estimate(String key) {
+        long hash1 = Hashing.fnv1aMix(key);
+        long hash2 = Hashing.mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        long combined = hash1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, combined)));
+            combined += hash2;
+        }
+        return estimate;
+    }
+
+    public boolean isTop(String key) {
+        return top.containsKey(key);
+    }
+
+    /**
+     * @return the top-K keys and their estimated counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> top() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(top.size());
+        top.forEach((key, count) -> entries.add(Map.entry(key, count)));
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries;
+    }
+
+    /**
+     * Halve every counter and estimate, dropping keys from the top-K whose estimate reaches 0.
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value = counters.get(i);
+            if (value != 0) {
+                // concurrent increments between get and set are lost, good enough for an estimate
+                counters.set(i, value >>> 1);
+            }
+        }
+        top.replaceAll((key, count) -> count >>> 1);
+        top.values().removeIf(count -> count == 0);
+        admissionThreshold = top.size() < capacity ? 0 : minimum();
+    }
+
+    public long memoryBytes() {
+        return (long) counters.length() * Long.BYTES;
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        if (top.containsKey(key)) {
+            return;
+        }
+        if (top.size() >= capacity) {
+            String smallest = null;
+            long smallestCount = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : top.entrySet()) {
+                if (entry.getValue() < smallestCount) {
+                    smallest = entry.getKey();
+                    smallestCount = entry.getValue();
+                }
+            }
+            if (smallestCount >= estimate) {
+                admissionThreshold = smallestCount;
+                return;
+            }
+            top.remove(smallest);
+        }
+        top.put(key, estimate);
+        admissionThreshold = top.size() < capacity ? 0 : minimum();
+    }
+
+    private long minimum() {
+        long minimum = Long.MAX_VALUE;
+        for (long count : top.values()) {
+            minimum = Math.min(minimum, count);
+        }
+        return minimum == Long.MAX_VALUE ? 0 : minimum;
+    }
+
+    private int index(int row, long hash) {
+        return row * (widthMask + 1) + (int) (hash & widthMask);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tinyurl.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Normalizes long urls and hashes them into the fixed-width dedup key stored in tiny_urls.long_url_hash.
+ * <ul>
+ *     <li>Normalization: trims whitespace and lower-cases the scheme and host, which are case-insensitive</li>
+ *     <li>Hash: first 64 bits of SHA-256, so the index is a fixed-width BIGINT instead of a string prefix</li>
+ *     <li>Different urls may share a hash, so lookups must also compare long_url, and the unique index also covers
+ *     a long_url prefix</li>
+ * </ul>
+ */
+@Component
+public class LongUrlHasher {
+
+    // never used directly, only cloned: a MessageDigest isn't thread-safe
+    private final MessageDigest sha256 = sha256();
+
+    /**
+     * @param longUrl the url as sent by the client
+     * @return the url with surrounding whitespace removed and scheme and host lower-cased
+     */
+    public String normalize(String longUrl) {
+        String url = longUrl.strip();
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return url;
+        }
+
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        // user info is case-sensitive, only the host (and port) after it is not
+        int hostStart = url.lastIndexOf('@', authorityEnd - 1) + 1;
+        if (hostStart < authorityStart) {
+            hostStart = authorityStart;
+        }
+
+        return url.substring(0, authorityStart).toLowerCase(Locale.ROOT)
+                + url.substring(authorityStart, hostStart)
+                + url.substring(hostStart, authorityEnd).toLowerCase(Locale.ROOT)
+                + url.substring(authorityEnd);
+    }
+
+    /**
+     * @param normalizedUrl a url returned by {@link #normalize}
+     * @return the 64-bit dedup hash of the url
+     */
+    public long hash(String normalizedUrl) {
+        byte[] digest = newDigest().digest(normalizedUrl.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    // cloning skips the provider lookup of MessageDigest.getInstance on every POST and bulk row
+    private MessageDigest newDigest() {
+        try {
+            return (MessageDigest) sha256.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digest can't be cloned", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
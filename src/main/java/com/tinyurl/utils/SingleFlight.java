@@ -0,0 +1,75 @@
+package com.tinyurl.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Per-key deduplication of concurrent loads: while a load for a key is in flight, other callers for the same key
+ * wait for its result instead of starting their own.
+ * <ul>
+ *     <li>The first caller runs the loader on its own thread, no executor involved</li>
+ *     <li>Waiters block on a {@link CompletableFuture}, which parks without holding a monitor,
+ *     so virtual threads unmount instead of pinning their carrier</li>
+ *     <li>Results (null included) and exceptions are shared with every waiter; nothing is cached afterwards</li>
+ * </ul>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param key    the key to load
+     * @param loader called at most once at a time per key
+     * @return the loaded value, possibly computed by a concurrent caller
+     */
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            V value = loader.apply(key);
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of calls that shared another caller's load
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,10 +1,52 @@
 CREATE TABLE IF NOT EXISTS tiny_urls
 (
-    short_url   VARCHAR(12) PRIMARY KEY, -- (short url code)
-    long_url    VARCHAR(2048) NOT NULL,  --
-    click_count INT           NOT NULL DEFAULT 0,
-    created_at  TIMESTAMP(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    short_url     VARCHAR(12) PRIMARY KEY, -- (short url code)
+    long_url      VARCHAR(2048) NOT NULL,  --
+    long_url_hash BIGINT        NULL,      -- first 64 bits of SHA-256 of the normalized long_url, see LongUrlHasher
+    click_count   INT           NOT NULL DEFAULT 0,
+    created_at    TIMESTAMP(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
 
-    UNIQUE INDEX idx_long_url (long_url(255))
+    -- one short url per long url, NULL for rows not backfilled yet. With the long_url prefix (760 chars fit the
+    -- 3072-byte key limit in utf8mb4), two urls sharing a hash can both be stored
+    UNIQUE INDEX idx_long_url_hash (long_url_hash, long_url(760))
 ) ENGINE = InnoDB;
 
+-- Long url dedup index when tiny_urls is sharded by short_url (sharding.additional-urls):
+-- rows live on the shard of long_url_hash, see ShardRouter. Unused with a single database.
+-- Unique like idx_long_url_hash of tiny_urls: new urls are claimed here before their tiny_urls row is written,
+-- see UrlRepository#save.
+CREATE TABLE IF NOT EXISTS url_dedup
+(
+    short_url     VARCHAR(12) PRIMARY KEY,
+    long_url      VARCHAR(2048) NOT NULL,
+    long_url_hash BIGINT        NOT NULL,
+
+    UNIQUE INDEX idx_long_url_hash (long_url_hash, long_url(760))
+) ENGINE = InnoDB;
+
+-- Migration of tables created with the 255-char prefix index on long_url.
+-- Each statement fails harmlessly once applied (spring.sql.init.continue-on-error=true), or checks
+-- information_schema first and runs DO 0 once applied: this script runs on every startup, on every shard.
+-- Existing rows get their long_url_hash from LongUrlHashBackfillService.
+ALTER TABLE tiny_urls ADD COLUMN long_url_hash BIGINT NULL AFTER long_url;
+ALTER TABLE tiny_urls ADD UNIQUE INDEX idx_long_url_hash (long_url_hash, long_url(760));
+-- idx_long_url_hash on long_url_hash alone becomes (long_url_hash, long_url(760)), rebuilt only by the first startup
+SET @migration = (SELECT IF(COUNT(*) = 1,
+        'ALTER TABLE tiny_urls DROP INDEX idx_long_url_hash, ADD UNIQUE INDEX idx_long_url_hash (long_url_hash, long_url(760))',
+        'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'tiny_urls' AND index_name = 'idx_long_url_hash');
+PREPARE migration FROM @migration;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+ALTER TABLE tiny_urls DROP INDEX idx_long_url;
+-- Same for url_dedup, whose idx_long_url_hash was on long_url_hash alone (non-unique at first). Fails while the
+-- same long url is in url_dedup twice, and then again on every startup: delete the extra rows first.
+SET @migration = (SELECT IF(COUNT(*) = 1,
+        'ALTER TABLE url_dedup DROP INDEX idx_long_url_hash, ADD UNIQUE INDEX idx_long_url_hash (long_url_hash, long_url(760))',
+        'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'url_dedup' AND index_name = 'idx_long_url_hash');
+PREPARE migration FROM @migration;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
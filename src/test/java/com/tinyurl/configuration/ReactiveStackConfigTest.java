@@ -0,0 +1,18 @@
+package com.tinyurl.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReactiveStackConfigTest {
+
+    @Test
+    public void testDatabaseClient_whenSharded() {
+        ReactiveStackConfig config = new ReactiveStackConfig();
+        ReflectionTestUtils.setField(config, "r2dbcUrl", "r2dbc:mysql://localhost:3306/tinyurl_db");
+        ReflectionTestUtils.setField(config, "shardingAdditionalUrls", "jdbc:mysql://localhost:3307/tinyurl_db");
+
+        assertThrows(IllegalStateException.class, config::databaseClient);
+    }
+}
@@ -0,0 +1,46 @@
+package com.tinyurl.configuration;
+
+import com.tinyurl.utils.Base62Encoder;
+import org.junit.jupiter.api.Test;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisLayoutTest {
+
+    @Test
+    public void testKeys_whenKeysLayout() {
+        RedisLayout layout = RedisLayout.keys();
+        assertEquals("url:abc", layout.urlKey("abc"));
+        assertEquals("clicks:abc", layout.clickKey("abc"));
+        assertEquals("clicks:*", layout.clickKeyPattern());
+    }
+
+    @Test
+    public void testKeys_whenBucketsLayout() {
+        RedisLayout layout = new RedisLayout(RedisLayout.Mode.BUCKETS, 1000, 10);
+        assertEquals("ub:" + RedisLayout.bucketOf("abc", 1000), layout.urlKey("abc"));
+        assertEquals("cb:" + RedisLayout.bucketOf("abc", 10), layout.clickKey("abc"));
+        assertEquals("cb:*", layout.clickKeyPattern());
+        assertThrows(IllegalArgumentException.class, () -> new RedisLayout(RedisLayout.Mode.BUCKETS, 0, 10));
+    }
+
+    @Test
+    public void testBucketOf_whenCodesAreSequentialSnowflakeIds() {
+        // consecutive codes of one node share their prefix, they must still spread over all buckets
+        Base62Encoder base62Encoder = new Base62Encoder();
+        int buckets = 1000;
+        int[] counts = new int[buckets];
+        for (int i = 0; i < 100_000; i++) {
+            long id = ((150_000_000_000L + i / 4096) << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS)) | (i % 4096);
+            counts[RedisLayout.bucketOf(base62Encoder.encode(id), buckets)]++;
+        }
+        for (int count : counts) {
+            // 100 expected per bucket
+            assertTrue(count > 50 && count < 160, "bucket holds " + count + " codes");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.tinyurl.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.model.BulkShortenResult;
+import com.tinyurl.repository.UrlRepository;
+import com.tinyurl.service.BulkUrlService;
+import com.tinyurl.service.ShortUrlFilter;
+import com.tinyurl.service.UrlCacheService;
+import com.tinyurl.utils.Base62Encoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkUrlControllerTest {
+
+    // echoes every url back as CREATED, records the chunks it was called with
+    private final List<List<String>> chunks = new ArrayList<>();
+    private final BulkUrlService bulkUrlService = new BulkUrlService(null, null, null, null, null, null, null) {
+        @Override
+        public List<BulkShortenResult> shorten(List<String> longUrls, long firstIndex) {
+            chunks.add(longUrls.stream().map(String::valueOf).toList());
+            List<BulkShortenResult> results = new ArrayList<>();
+            for (int i = 0; i < longUrls.size(); i++) {
+                results.add(new BulkShortenResult(firstIndex + i, longUrls.get(i), "s" + (firstIndex + i),
+                        BulkShortenResult.Status.CREATED, null));
+            }
+            return results;
+        }
+    };
+
+    private String post(String body) throws Exception {
+        BulkUrlController controller = new BulkUrlController(bulkUrlService, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(controller, "chunkSize", 2);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.bulk(request, response);
+        return response.getContentAsString();
+    }
+
+    // resolve path: L1 holds l1, Redis holds r1, the DB holds d1 and d2
+    private final Cache<String, String> urlNearCache = Caffeine.newBuilder().build();
+    private final Map<String, String> redis = Map.of("url:r1", "https://example.com/redis");
+    private final List<List<String>> mgets = new ArrayList<>();
+    private final List<Collection<String>> dbLookups = new ArrayList<>();
+    private final Map<String, String> backfilled = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private ResponseEntity<?> resolve(List<String> shortUrls, int maxCodes) {
+        // only MGET is used by getAll
+        ValueOperations<String, String> valueOperations = (ValueOperations<String, String>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> {
+                    List<String> keys = List.copyOf((Collection<String>) args[0]);
+                    mgets.add(keys);
+                    return keys.stream().map(redis::get).toList();
+                });
+        StringRedisTemplate redisTemplate = new StringRedisTemplate() {
+            @Override
+            public ValueOperations<String, String> opsForValue() {
+                return valueOperations;
+            }
+        };
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+        UrlCacheService urlCacheService = new UrlCacheService(redisTemplate, Duration.ofHours(1), urlNearCache,
+                performanceMetrics, null, null, RedisLayout.keys()) {
+            @Override
+            public void putAll(Map<String, String> mappings) {
+                backfilled.putAll(mappings);
+            }
+        };
+        urlNearCache.put("l1", "https://example.com/l1");
+        UrlRepository urlRepository = new UrlRepository(null, null, null) {
+            @Override
+            public Map<String, String> findLongUrls(Collection<String> shortUrls) {
+                dbLookups.add(List.copyOf(shortUrls));
+                Map<String, String> rows = new LinkedHashMap<>();
+                for (String shortUrl : shortUrls) {
+                    if (shortUrl.startsWith("d")) {
+                        rows.put(shortUrl, "https://example.com/db/" + shortUrl);
+                    }
+                }
+                return rows;
+            }
+        };
+        Base62Encoder base62Encoder = new Base62Encoder();
+        BulkUrlService service = new BulkUrlService(null, urlRepository, urlCacheService, base62Encoder, null,
+                new ShortUrlFilter(base62Encoder, performanceMetrics), performanceMetrics);
+        BulkUrlController controller = new BulkUrlController(service, JsonMapper.builder().build());
+        ReflectionTestUtils.setField(controller, "resolveMaxCodes", maxCodes);
+        return controller.resolve(shortUrls);
+    }
+
+    @Test
+    public void testBulk_whenJsonArray() throws Exception {
+        String response = post("[\"http://a.com\", {\"other\": [1], \"longUrl\": \"http://b.com\"}, 3]");
+        assertEquals("""
+                {"index":0,"longUrl":"http://a.com","shortUrl":"s0","status":"CREATED"}
+                {"index":1,"longUrl":"http://b.com","shortUrl":"s1","status":"CREATED"}
+                {"index":2,"shortUrl":"s2","status":"CREATED"}
+                """, response);
+        assertEquals(List.of(List.of("http://a.com", "http://b.com"), List.of("null")), chunks);
+    }
+
+    @Test
+    public void testBulk_whenNdjson() throws Exception {
+        String response = post("\"http://a.com\"\n{\"longUrl\": \"http://b.com\"}\n\"http://c.com\"\n");
+        assertEquals(3, response.lines().count());
+        assertEquals(List.of(List.of("http://a.com", "http://b.com"), List.of("http://c.com")), chunks);
+    }
+
+    @Test
+    public void testBulk_whenMalformed() throws Exception {
+        String response = post("[\"http://a.com\", \"http://b.com\", \"http://c.com\" x]");
+        List<String> lines = response.lines().toList();
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(3).startsWith("{\"index\":3,\"status\":\"FAILED\""));
+
+        assertThrows(ResponseStatusException.class, () -> post("x"));
+    }
+
+    @Test
+    public void testResolve_whenHitsComeFromEveryLevel() {
+        ResponseEntity<?> response = resolve(List.of("d1", "r1", "l1", "d2"), 10);
+
+        assertEquals(200, response.getStatusCode().value());
+        Map<String, String> resolved = new LinkedHashMap<>();
+        resolved.put("d1", "https://example.com/db/d1");
+        resolved.put("r1", "https://example.com/redis");
+        resolved.put("l1", "https://example.com/l1");
+        resolved.put("d2", "https://example.com/db/d2");
+        assertEquals(Map.of("resolved", resolved, "notFound", List.of()), response.getBody());
+        // in request order
+        assertEquals(List.copyOf(resolved.keySet()), List.copyOf(((Map<?, ?>) ((Map<?, ?>) response.getBody()).get("resolved")).keySet()));
+        // the L1 hit goes nowhere, the rest takes one MGET, and only Redis misses reach the DB
+        assertEquals(List.of(List.of("url:d1", "url:r1", "url:d2")), mgets);
+        assertEquals(List.of(List.of("d1", "d2")), dbLookups);
+        assertEquals(Map.of("d1", "https://example.com/db/d1", "d2", "https://example.com/db/d2"), backfilled);
+    }
+
+    @Test
+    public void testResolve_whenCodesAreUnknownOrRepeated() {
+        ResponseEntity<?> response = resolve(List.of("x1", "l1", "bad!", "d1", "x1", "l1", "d1"), 10);
+
+        assertEquals(Map.of(
+                "resolved", Map.of("l1", "https://example.com/l1", "d1", "https://example.com/db/d1"),
+                "notFound", List.of("x1", "bad!")), response.getBody());
+        // every code is looked up once, and codes that can't be Base62 ids are never looked up
+        assertEquals(List.of(List.of("url:x1", "url:d1")), mgets);
+        assertEquals(List.of(List.of("x1", "d1")), dbLookups);
+    }
+
+    @Test
+    public void testResolve_whenOverMaxCodes() {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> resolve(List.of("d1", "d2", "d3", "d4"), 3));
+
+        assertEquals(400, error.getStatusCode().value());
+        assertTrue(mgets.isEmpty());
+        assertTrue(dbLookups.isEmpty());
+        assertEquals(200, resolve(List.of("d1", "d2", "d3"), 3).getStatusCode().value());
+    }
+}
@@ -0,0 +1,79 @@
+package com.tinyurl.controller;
+
+import com.tinyurl.configuration.RedirectPolicy;
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.service.ClickTrackingService;
+import com.tinyurl.service.ShortUrlFilter;
+import com.tinyurl.service.UrlCacheService;
+import com.tinyurl.utils.Base62Encoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TinyUrlControllerTest {
+
+    private static final String LONG_URL = "https://example.com/café menu";
+
+    // every code resolves from the cache
+    private final UrlCacheService urlCacheService = new UrlCacheService(null, null, null, null, null, null, null) {
+        @Override
+        public String get(String shortUrl) {
+            return LONG_URL;
+        }
+    };
+
+    private MockHttpServletResponse get(RedirectPolicy.Mode mode, String ifNoneMatch) throws Exception {
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+        ClickTrackingService clickTrackingService = new ClickTrackingService(null, null, null, performanceMetrics);
+        clickTrackingService.registerMetrics();
+        ReflectionTestUtils.setField(clickTrackingService, "localAggregationEnabled", true);
+        ReflectionTestUtils.setField(clickTrackingService, "localMaxKeys", 10);
+        TinyUrlController controller = new TinyUrlController(new Base62Encoder(), null, null, urlCacheService, null,
+                clickTrackingService, null, new ShortUrlFilter(new Base62Encoder(), null),
+                new RedirectPolicy(mode, 3600), JsonMapper.builder().build(), performanceMetrics);
+        controller.initTimers();
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.get("abc", request, response);
+        return response;
+    }
+
+    @Test
+    public void testGet_whenPermanentRedirect() throws Exception {
+        MockHttpServletResponse response = get(RedirectPolicy.Mode.PERMANENT, null);
+        assertEquals(301, response.getStatus());
+        assertEquals("https://example.com/caf%C3%A9%20menu", response.getHeader("Location"));
+        assertEquals("public, max-age=3600", response.getHeader("Cache-Control"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testGet_whenTemporaryRedirectIgnoresPreconditions() throws Exception {
+        String etag = get(RedirectPolicy.Mode.TEMPORARY, null).getHeader("ETag");
+        MockHttpServletResponse response = get(RedirectPolicy.Mode.TEMPORARY, etag);
+        assertEquals(302, response.getStatus());
+        assertEquals("private, no-cache", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testGet_whenJsonAndEtagMatches() throws Exception {
+        MockHttpServletResponse response = get(RedirectPolicy.Mode.JSON, null);
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"longUrl\":\"https://example.com/café menu\"}", response.getContentAsString());
+        assertNull(response.getHeader("Location"));
+
+        MockHttpServletResponse revalidated = get(RedirectPolicy.Mode.JSON, "\"other\", W/" + response.getHeader("ETag"));
+        assertEquals(304, revalidated.getStatus());
+        assertEquals(0, revalidated.getContentAsByteArray().length);
+    }
+}
@@ -0,0 +1,124 @@
+package com.tinyurl.metrics;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HdrOperationTimerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private HdrOperationTimer timer(int sampleEvery) {
+        return new HdrOperationTimer("test", sampleEvery, 4, clock::get);
+    }
+
+    @Test
+    public void testWindows_whenMinutesRotate() {
+        HdrOperationTimer timer = timer(1);
+        for (int millis = 1; millis <= 100; millis++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        timer.error();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(100, timer.count());
+        assertEquals(50.5, timer.meanMillis(), 0.01);
+        assertEquals(50, timer.percentileMillis(0.5), 0.5);
+        assertEquals(99, timer.percentileMillis(0.99), 1);
+
+        LatencySnapshot lastSecond = timer.lastSecond();
+        assertEquals(100, lastSecond.count());
+        assertEquals(100, lastSecond.ratePerSecond(), 0.01);
+        assertEquals(0.01, lastSecond.errorRate(), 0.0001);
+        assertEquals(100, lastSecond.p999Ms(), 1);
+
+        // the minute is complete: still in every window
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(0, timer.lastSecond().count());
+        assertEquals(100, timer.window(0).count());
+        assertEquals(1, timer.window(0).errors());
+        assertEquals(100, timer.maxMillis(), 1);
+
+        // out of the 1m window, still in the 5m and 15m ones
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(0, timer.maxMillis());
+        assertEquals(100, timer.window(1).count());
+        assertEquals(100, timer.window(2).count());
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(15));
+        assertEquals(LatencySnapshot.EMPTY, timer.window(2));
+        assertEquals(100, timer.count());
+        assertEquals(1, timer.errors());
+    }
+
+    @Test
+    public void testCount_whenSampled() {
+        HdrOperationTimer timer = timer(8);
+        int recorded = 0;
+        for (int i = 0; i < 80_000; i++) {
+            long start = timer.start();
+            if (start != OperationTimer.NOT_SAMPLED) {
+                recorded++;
+            }
+            timer.stop(start);
+        }
+        assertTrue(recorded > 8_000 && recorded < 12_000, "recorded " + recorded);
+        assertEquals(recorded * 8L, timer.count());
+    }
+
+    @Test
+    public void testTimer_whenHdrMode() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(meterRegistry);
+        ReflectionTestUtils.setField(performanceMetrics, "timerMode", "hdr");
+        ReflectionTestUtils.setField(performanceMetrics, "sampleEvery", "cache.get:4, get:2");
+
+        OperationTimer timer = performanceMetrics.timer("get");
+        assertEquals(2, timer.getSampleEvery());
+        assertEquals(4, performanceMetrics.timer("cache.get").getSampleEvery());
+        assertEquals(timer, performanceMetrics.timer("get"));
+
+        FunctionTimer exported = meterRegistry.find("tinyurl.get").functionTimer();
+        assertNotNull(exported);
+        assertNotNull(meterRegistry.find("tinyurl.get.percentile").tag("quantile", "0.99").gauge());
+        assertNotNull(meterRegistry.find("tinyurl.get.max").gauge());
+    }
+
+    @Test
+    public void testLastSecond_whenReadConcurrently() {
+        HdrOperationTimer timer = timer(1);
+        for (int millis = 1; millis <= 100; millis++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        // one due tick: a second drain would replace the snapshot with an empty one
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<LatencySnapshot>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return timer.lastSecond();
+            }));
+        }
+        start.countDown();
+        for (CompletableFuture<LatencySnapshot> reader : readers) {
+            assertEquals(100, reader.join().count());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tinyurl.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsStreamControllerTest {
+
+    @Test
+    public void testPublish_whenClientStalls() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MetricsStreamController controller = new MetricsStreamController(new PerformanceMetrics(meterRegistry));
+        controller.subscribe();
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicInteger sends = new AtomicInteger();
+        // a client that stops reading: the first write blocks
+        controller.register(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws java.io.IOException {
+                sends.incrementAndGet();
+                stalled.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, Set.of());
+
+        controller.publish(Map.of());
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        controller.publish(Map.of());
+        controller.publish(Map.of());
+
+        // the next ticks are skipped instead of queueing behind the stalled write
+        assertEquals(1, sends.get());
+        assertEquals(2, meterRegistry.counter("tinyurl.metrics.stream.skipped").count());
+
+        // once the write completes, the client gets the next tick again
+        resume.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sends.get() < 2 && System.nanoTime() < deadline) {
+            controller.publish(Map.of());
+            Thread.sleep(10);
+        }
+        assertTrue(sends.get() >= 2);
+        controller.shutdown();
+    }
+}
@@ -0,0 +1,259 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedUrlRepositoryTest {
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private final LongUrlHasher longUrlHasher = new LongUrlHasher();
+
+    static JdbcTemplate createShard() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE tiny_urls
+                (
+                    short_url     VARCHAR(12) PRIMARY KEY,
+                    long_url      VARCHAR(2048) NOT NULL,
+                    long_url_hash BIGINT        NULL,
+                    click_count   INT           NOT NULL DEFAULT 0,
+                    created_at    TIMESTAMP(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                    UNIQUE (long_url_hash, long_url)
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE url_dedup
+                (
+                    short_url     VARCHAR(12) PRIMARY KEY,
+                    long_url      VARCHAR(2048) NOT NULL,
+                    long_url_hash BIGINT        NOT NULL,
+                    UNIQUE (long_url_hash, long_url)
+                )
+                """);
+        return jdbcTemplate;
+    }
+
+    private UrlRepository createRepository(ShardRouter shardRouter) {
+        return new UrlRepository(shardRouter, longUrlHasher, base62Encoder);
+    }
+
+    private Map<String, String> mappings(int count) {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            mappings.put(base62Encoder.encode(1_000_000_000L + i), "https://example.com/" + i);
+        }
+        return mappings;
+    }
+
+    private static int count(JdbcTemplate shard, String table) {
+        return shard.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    @Test
+    public void testSave_whenSharded() {
+        List<JdbcTemplate> shards = List.of(createShard(), createShard(), createShard());
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        UrlRepository urlRepository = createRepository(shardRouter);
+        Map<String, String> mappings = mappings(300);
+
+        mappings.forEach(urlRepository::save);
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int rows = count(shards.get(shard), "tiny_urls");
+            assertTrue(rows > 50, "shard " + shard + " holds " + rows + " rows");
+        }
+        mappings.forEach((shortUrl, longUrl) -> {
+            assertEquals(longUrl, urlRepository.findLongUrl(shortUrl));
+            assertEquals(shortUrl, urlRepository.findShortUrlByLongUrl(longUrl));
+        });
+        assertNull(urlRepository.findShortUrlByLongUrl("https://example.com/missing"));
+        assertEquals(mappings, urlRepository.findLongUrls(mappings.keySet()));
+        assertEquals(mappings.size(), urlRepository.findShortUrlsByLongUrls(mappings.values()).size());
+    }
+
+    @Test
+    public void testSaveAll_whenSharded() {
+        List<JdbcTemplate> shards = List.of(createShard(), createShard());
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        UrlRepository urlRepository = createRepository(shardRouter);
+        Map<String, String> mappings = mappings(100);
+        String taken = mappings.keySet().iterator().next();
+        urlRepository.save(taken, "https://example.com/other");
+
+        Set<String> saved = urlRepository.saveAll(mappings);
+
+        assertEquals(mappings.size() - 1, saved.size());
+        for (String shortUrl : saved) {
+            assertEquals(shortUrl, urlRepository.findShortUrlByLongUrl(mappings.get(shortUrl)));
+        }
+        assertEquals("https://example.com/other", urlRepository.findLongUrl(taken));
+        assertEquals(mappings.size(), shards.stream().mapToInt(shard -> count(shard, "url_dedup")).sum());
+    }
+
+    @Test
+    public void testSave_whenLongUrlClaimedOnAnotherShard() {
+        List<JdbcTemplate> shards = List.of(createShard(), createShard());
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        UrlRepository urlRepository = createRepository(shardRouter);
+        // two codes for the same long url, placed on different shards
+        List<String> codes = new ArrayList<>(mappings(100).keySet());
+        String first = codes.getFirst();
+        String second = codes.stream().filter(code -> shardRouter.shardOfCode(code) != shardRouter.shardOfCode(first))
+                .findFirst().orElseThrow();
+        String third = codes.stream().filter(code -> !code.equals(first) && !code.equals(second)).findFirst().orElseThrow();
+
+        assertTrue(urlRepository.save(first, "https://example.com/a"));
+        assertFalse(urlRepository.save(second, "https://example.com/a"));
+        assertEquals(Set.of(), urlRepository.saveAll(Map.of(second, "https://example.com/a")));
+
+        assertEquals(first, urlRepository.findShortUrlByLongUrl("https://example.com/a", true));
+        assertNull(urlRepository.findLongUrl(second));
+        assertEquals(1, shards.stream().mapToInt(shard -> count(shard, "tiny_urls")).sum());
+
+        // the tiny_urls insert is skipped (the code is taken): the claim is released
+        shards.get(shardRouter.shardOfCode(third)).update(
+                "INSERT INTO tiny_urls (short_url, long_url) VALUES (?, ?)", third, "https://example.com/old");
+        assertFalse(urlRepository.save(third, "https://example.com/b"));
+        assertEquals(Set.of(), urlRepository.saveAll(Map.of(third, "https://example.com/b")));
+        assertNull(urlRepository.findShortUrlByLongUrl("https://example.com/b", true));
+        assertEquals(1, shards.stream().mapToInt(shard -> count(shard, "url_dedup")).sum());
+    }
+
+    @Test
+    public void testSaveAll_whenShardFails() {
+        JdbcTemplate failing = createShard();
+        List<JdbcTemplate> shards = List.of(createShard(), new JdbcTemplate(failing.getDataSource()) {
+            @Override
+            public int update(String sql, Object... args) {
+                if (sql.startsWith("INSERT IGNORE INTO tiny_urls")) {
+                    throw new DataAccessResourceFailureException("shard down");
+                }
+                return super.update(sql, args);
+            }
+        });
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        UrlRepository urlRepository = createRepository(shardRouter);
+        // the healthy shard's rows are inserted first
+        Map<String, String> mappings = new LinkedHashMap<>();
+        mappings(100).entrySet().stream()
+                .sorted(Comparator.comparingInt(entry -> shardRouter.shardOfCode(entry.getKey())))
+                .forEach(entry -> mappings.put(entry.getKey(), entry.getValue()));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> urlRepository.saveAll(mappings));
+
+        int stored = count(shards.get(0), "tiny_urls");
+        assertTrue(stored > 0);
+        assertEquals(0, count(failing, "tiny_urls"));
+        // claims of the stored rows are kept, the others are released
+        assertEquals(stored, shards.stream().mapToInt(shard -> count(shard, "url_dedup")).sum());
+        mappings.forEach((shortUrl, longUrl) -> {
+            String dedup = urlRepository.findShortUrlByLongUrl(longUrl, true);
+            assertEquals(shardRouter.shardOfCode(shortUrl) == 0 ? shortUrl : null, dedup);
+        });
+    }
+
+    @Test
+    public void testRebalance_whenShardAdded() {
+        List<JdbcTemplate> shards = new ArrayList<>(List.of(createShard(), createShard()));
+        UrlRepository before = createRepository(ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES));
+        Map<String, String> mappings = mappings(500);
+        before.saveAll(mappings);
+
+        shards.add(createShard());
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        UrlRepository after = createRepository(shardRouter);
+        ShardRebalancer.Result result = new ShardRebalancer(shardRouter, longUrlHasher).rebalance();
+
+        // rows only ever move to the new shard
+        assertEquals(count(shards.get(2), "tiny_urls"), result.urlsMoved());
+        assertTrue(result.urlsMoved() > 0);
+        assertEquals(mappings.size(), shards.stream().mapToInt(shard -> count(shard, "tiny_urls")).sum());
+        assertEquals(mappings.size(), shards.stream().mapToInt(shard -> count(shard, "url_dedup")).sum());
+        mappings.forEach((shortUrl, longUrl) -> {
+            assertEquals(longUrl, after.findLongUrl(shortUrl));
+            assertEquals(shortUrl, after.findShortUrlByLongUrl(longUrl));
+        });
+    }
+
+    @Test
+    public void testRebalance_whenRowsHaveNoLongUrlHash() {
+        List<JdbcTemplate> shards = new ArrayList<>(List.of(createShard(), createShard()));
+        ShardRouter before = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        shards.add(createShard());
+        ShardRouter shardRouter = ShardRouter.consistentHash(shards, ShardRouter.DEFAULT_VIRTUAL_NODES);
+        List<String> movingCodes = mappings(100).keySet().stream().filter(code -> shardRouter.shardOfCode(code) == 2).toList();
+        String mixedCase = movingCodes.get(0);
+        String duplicate = movingCodes.get(1);
+        String stored = movingCodes.get(2);
+        // rows from before long_url_hash; the new shard already holds the duplicate's url with its hash
+        shards.get(before.shardOfCode(mixedCase)).update("INSERT INTO tiny_urls (short_url, long_url, click_count) VALUES (?, ?, ?)",
+                mixedCase, "HTTPS://Example.com/X", 5);
+        shards.get(before.shardOfCode(duplicate)).update("INSERT INTO tiny_urls (short_url, long_url) VALUES (?, ?)",
+                duplicate, "https://example.com/Y");
+        shards.get(2).update("INSERT INTO tiny_urls (short_url, long_url, long_url_hash) VALUES (?, ?, ?)",
+                stored, "https://example.com/Y", longUrlHasher.hash("https://example.com/Y"));
+
+        ShardRebalancer.Result result = new ShardRebalancer(shardRouter, longUrlHasher).rebalance();
+
+        assertEquals(2, result.urlsMoved());
+        assertEquals(3, count(shards.get(2), "tiny_urls"));
+        assertEquals(longUrlHasher.hash("https://example.com/X"), shards.get(2).queryForObject(
+                "SELECT long_url_hash FROM tiny_urls WHERE short_url = ?", Long.class, mixedCase));
+        assertEquals(5, shards.get(2).queryForObject("SELECT click_count FROM tiny_urls WHERE short_url = ?", Integer.class, mixedCase));
+        assertNull(shards.get(2).queryForObject("SELECT long_url_hash FROM tiny_urls WHERE short_url = ?", Long.class, duplicate));
+        assertEquals("https://example.com/Y", createRepository(shardRouter).findLongUrl(duplicate));
+    }
+
+    @Test
+    public void testFindLongUrl_whenReplicaLags() {
+        JdbcTemplate primary = createShard();
+        JdbcTemplate replica = createShard();
+        PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+        UrlRepository urlRepository = createRepository(ShardRouter.withReplicaSets(
+                List.of(ReplicaSet.withReplicas("shard0", primary, List.of(replica), performanceMetrics, 1_000)), 1));
+        String oldCode = base62Encoder.encode(1_000_000_000L);
+        String newCode = base62Encoder.encode((System.currentTimeMillis() - SNOWFLAKE_EPOCH_MS)
+                << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS));
+        String replicatedCode = base62Encoder.encode(1_000_000_001L);
+        urlRepository.save(oldCode, "https://example.com/old");
+        urlRepository.save(newCode, "https://example.com/new");
+        // only this row has reached the replica, with a marker to tell where it was read from
+        replica.update("INSERT INTO tiny_urls (short_url, long_url) VALUES (?, ?)", replicatedCode, "https://replica.example.com");
+        primary.update("INSERT INTO tiny_urls (short_url, long_url) VALUES (?, ?)", replicatedCode, "https://example.com/replicated");
+
+        assertEquals("https://replica.example.com", urlRepository.findLongUrl(replicatedCode));
+        assertEquals("https://example.com/new", urlRepository.findLongUrl(newCode));
+        assertEquals("https://example.com/old", urlRepository.findLongUrl(oldCode));
+        assertEquals(3, urlRepository.findLongUrls(List.of(oldCode, newCode, replicatedCode)).size());
+
+        ReflectionTestUtils.setField(urlRepository, "fallbackOnMiss", false);
+        assertNull(urlRepository.findLongUrl(oldCode));
+        assertEquals("https://example.com/new", urlRepository.findLongUrl(newCode));
+    }
+}
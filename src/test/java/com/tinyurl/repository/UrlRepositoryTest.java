@@ -0,0 +1,78 @@
+package com.tinyurl.repository;
+
+import com.tinyurl.exception.LongUrlHashCollisionException;
+import com.tinyurl.utils.Base62Encoder;
+import com.tinyurl.utils.LongUrlHasher;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlRepositoryTest {
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private final LongUrlHasher longUrlHasher = new LongUrlHasher();
+    private final JdbcTemplate jdbcTemplate = ShardedUrlRepositoryTest.createShard();
+    private final UrlRepository urlRepository = new UrlRepository(ShardRouter.single(jdbcTemplate), longUrlHasher,
+            base62Encoder);
+
+    @Test
+    public void testSave_whenLongUrlAlreadyStored() {
+        assertTrue(urlRepository.save("a1", "https://example.com/a"));
+        assertFalse(urlRepository.save("a2", "https://example.com/a"));
+        assertEquals("a1", urlRepository.findShortUrlByLongUrl("https://example.com/a", true));
+    }
+
+    @Test
+    public void testFindShortUrlByLongUrl_whenHashCollides() {
+        // another url stored under the hash of https://example.com/a
+        jdbcTemplate.update("INSERT INTO tiny_urls (short_url, long_url, long_url_hash) VALUES (?, ?, ?)",
+                "b1", "https://example.com/b", longUrlHasher.hash("https://example.com/a"));
+
+        assertNull(urlRepository.findShortUrlByLongUrl("https://example.com/a"));
+        assertTrue(urlRepository.findShortUrlsByLongUrls(List.of("https://example.com/a")).isEmpty());
+        assertTrue(urlRepository.save("a1", "https://example.com/a"));
+        assertEquals("a1", urlRepository.findShortUrlByLongUrl("https://example.com/a"));
+        assertEquals(Map.of("https://example.com/a", "a1"), urlRepository.findShortUrlsByLongUrls(List.of("https://example.com/a")));
+    }
+
+    @Test
+    public void testSharesIndexKey_whenPrefixesMatch() {
+        String prefix = "https://example.com/" + "p".repeat(800);
+        assertTrue(UrlRepository.sharesIndexKey(prefix + "/a", prefix + "/b"));
+        assertTrue(UrlRepository.sharesIndexKey("https://example.com/A", "https://example.com/a"));
+        assertFalse(UrlRepository.sharesIndexKey("https://example.com/b", "https://example.com/a"));
+        assertFalse(UrlRepository.sharesIndexKey("https://example.com/a", "https://example.com/a/longer"));
+        assertThrows(LongUrlHashCollisionException.class, () -> {
+            jdbcTemplate.update("INSERT INTO tiny_urls (short_url, long_url, long_url_hash) VALUES (?, ?, ?)",
+                    "b2", prefix + "/b", longUrlHasher.hash(prefix + "/a"));
+            urlRepository.findShortUrlByLongUrl(prefix + "/a");
+        });
+    }
+
+    @Test
+    public void testBackfillLongUrlHashes_whenLegacyUrlsDifferInCase() {
+        // rows from before long_url_hash, stored as sent
+        jdbcTemplate.update("INSERT INTO tiny_urls (short_url, long_url) VALUES (?, ?), (?, ?), (?, ?)",
+                "c1", "HTTPS://Example.com/Path", "c2", "https://example.com/Path", "c3", "https://example.com/other");
+
+        Map<String, String> page = urlRepository.findWithoutLongUrlHash("", 2);
+        assertEquals(List.of("c1", "c2"), List.copyOf(page.keySet()));
+        // c2 normalizes to the url c1 holds and is skipped, the cursor moves past it
+        assertEquals(1, urlRepository.backfillLongUrlHashes(page));
+        assertEquals(Map.of("c3", "https://example.com/other"), urlRepository.findWithoutLongUrlHash("c2", 2));
+        assertEquals(1, urlRepository.backfillLongUrlHashes(urlRepository.findWithoutLongUrlHash("c2", 2)));
+
+        assertEquals("c1", urlRepository.findShortUrlByLongUrl(longUrlHasher.normalize("HTTPS://Example.com/Path")));
+        assertEquals("c3", urlRepository.findShortUrlByLongUrl("https://example.com/other"));
+        assertNull(jdbcTemplate.queryForObject("SELECT long_url_hash FROM tiny_urls WHERE short_url = 'c2'", Long.class));
+        assertEquals("https://example.com/Path", urlRepository.findLongUrl("c2"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.UrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CacheWarmerTest {
+
+    private final Map<String, String> cached = new ConcurrentHashMap<>();
+
+    // 1,234 rows, most clicked first
+    private final UrlRepository urlRepository = new UrlRepository(null, null, null) {
+        @Override
+        public void forEachTopUrl(boolean byClicks, int limit, BiConsumer<String, String> action) {
+            for (int i = 0; i < Math.min(limit, 1234); i++) {
+                action.accept("code" + i, "https://example.com/" + i);
+            }
+        }
+    };
+
+    private final UrlCacheService urlCacheService = new UrlCacheService(null, null, null, null, null, null, null) {
+        @Override
+        public void putAll(Map<String, String> mappings) {
+            cached.putAll(mappings);
+        }
+    };
+
+    @Test
+    public void testWarmUp_whenRowsFitTheLimit() {
+        CacheWarmer cacheWarmer = new CacheWarmer(urlRepository, urlCacheService,
+                new PerformanceMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cacheWarmer, "rows", 1000);
+        ReflectionTestUtils.setField(cacheWarmer, "batchSize", 64);
+        assertEquals(Status.OUT_OF_SERVICE, cacheWarmer.health().getStatus());
+
+        cacheWarmer.warmUp();
+
+        assertEquals(1000, cached.size());
+        assertEquals("https://example.com/999", cached.get("code999"));
+        assertEquals(Status.UP, cacheWarmer.health().getStatus());
+        assertEquals(CacheWarmer.State.COMPLETED, cacheWarmer.health().getDetails().get("state"));
+    }
+
+    @Test
+    public void testWarmUp_whenTimeBudgetIsSpent() {
+        CacheWarmer cacheWarmer = new CacheWarmer(urlRepository, urlCacheService,
+                new PerformanceMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cacheWarmer, "timeBudgetMs", -1L);
+
+        cacheWarmer.warmUp();
+
+        assertEquals(0, cached.size());
+        assertEquals(Status.UP, cacheWarmer.health().getStatus());
+        assertEquals(CacheWarmer.State.OUT_OF_TIME, cacheWarmer.health().getDetails().get("state"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.tinyurl.service;
+
+import com.tinyurl.configuration.RedisLayout;
+import com.tinyurl.metrics.PerformanceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClickTrackingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ClickTrackingService service;
+    // what the next pipelined merge does, instead of talking to Redis
+    private Runnable onMerge = () -> {
+    };
+
+    private ClickTrackingService service(int maxKeys) {
+        StringRedisTemplate redisTemplate = new StringRedisTemplate() {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                onMerge.run();
+                return List.of();
+            }
+        };
+        service = new ClickTrackingService(redisTemplate, RedisLayout.keys(), null,
+                new PerformanceMetrics(meterRegistry));
+        ReflectionTestUtils.setField(service, "localAggregationEnabled", true);
+        ReflectionTestUtils.setField(service, "localMaxKeys", maxKeys);
+        service.registerMetrics();
+        return service;
+    }
+
+    private Map<?, ?> buffered() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(service, "localClicks");
+    }
+
+    @Test
+    public void testSpillLocalClicks_whenBufferIsFullOfActiveCodes() {
+        service(2);
+        assertTrue(service.recordLocally("a"));
+        assertTrue(service.recordLocally("b"));
+        assertFalse(service.recordLocally("c"));
+
+        service.spillLocalClicks();
+
+        // emptied although both codes had clicks, so new codes are buffered again
+        assertEquals(0, buffered().size());
+        assertTrue(service.recordLocally("c"));
+    }
+
+    @Test
+    public void testMergeLocalClicks_whenRedisFailsAndBufferRefilled() {
+        service(2);
+        service.recordLocally("a");
+        service.recordLocally("a");
+        service.recordLocally("b");
+        service.spillLocalClicks();
+        // new codes fill the buffer while the merge of a and b fails
+        onMerge = () -> {
+            service.recordLocally("c");
+            service.recordLocally("d");
+            throw new RedisConnectionFailureException("down");
+        };
+        service.recordLocally("a");
+
+        service.spillLocalClicks();
+
+        assertEquals(2, buffered().size());
+        assertEquals(1, meterRegistry.counter("tinyurl.clicks.local.dropped").count());
+    }
+}
@@ -0,0 +1,54 @@
+package com.tinyurl.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmbeddedSnowflakeGeneratorTest {
+
+    private final AtomicLong clock = new AtomicLong(SNOWFLAKE_EPOCH_MS + 1_000);
+
+    @Test
+    public void testNextId_layout() {
+        EmbeddedSnowflakeGenerator generator = new EmbeddedSnowflakeGenerator(5, "host", 10, clock::get);
+        long id = generator.nextId();
+        assertEquals(1_000, id >>> 22);
+        assertEquals(5, (id >>> 12) & 1023);
+        assertEquals(0, id & 4095);
+        assertEquals(1, generator.nextId() & 4095);
+    }
+
+    @Test
+    public void testNextId_sequenceOverflowBorrowsNextMillisecond() {
+        EmbeddedSnowflakeGenerator generator = new EmbeddedSnowflakeGenerator(5, "host", 10, clock::get);
+        long previous = generator.nextId();
+        for (int i = 0; i < 4096; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertEquals(1_001, previous >>> 22);
+        assertEquals(0, previous & 4095);
+    }
+
+    @Test
+    public void testNextId_whenClockMovesBackwards() {
+        EmbeddedSnowflakeGenerator generator = new EmbeddedSnowflakeGenerator(5, "host", 10, clock::get);
+        long first = generator.nextId();
+        clock.addAndGet(-5);
+        assertTrue(generator.nextId() > first);
+        clock.addAndGet(-50);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    public void testConstructor_whenNodeIdIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EmbeddedSnowflakeGenerator(1024, "host", 10, clock::get));
+    }
+}
@@ -0,0 +1,154 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.repository.UrlRepository;
+import com.tinyurl.utils.Base62Encoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupCommitWriterTest {
+
+    private final PerformanceMetrics performanceMetrics = new PerformanceMetrics(new SimpleMeterRegistry());
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Collection<String>> batches = new CopyOnWriteArrayList<>();
+    private GroupCommitWriter writer;
+
+    // saveAll answers with saveAll.apply(mappings) and records each batch
+    private GroupCommitWriter start(int batchSize, long maxLingerMs, int queueCapacity,
+                                    Function<Map<String, String>, Set<String>> saveAll) {
+        UrlRepository urlRepository = new UrlRepository(null, null, null) {
+            @Override
+            public Set<String> saveAll(Map<String, String> mappings) {
+                batches.add(List.copyOf(mappings.keySet()));
+                return saveAll.apply(mappings);
+            }
+        };
+        writer = new GroupCommitWriter(urlRepository, new ShortUrlFilter(new Base62Encoder(), performanceMetrics),
+                performanceMetrics);
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "maxLingerMs", maxLingerMs);
+        ReflectionTestUtils.setField(writer, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writer, "writers", 1);
+        ReflectionTestUtils.setField(writer, "offerTimeoutMs", 50L);
+        writer.start();
+        return writer;
+    }
+
+    private CompletableFuture<Boolean> saveAsync(String shortUrl) {
+        return CompletableFuture.supplyAsync(() -> writer.save(shortUrl, "https://example.com/" + shortUrl), callers);
+    }
+
+    @AfterEach
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            writer.stop();
+        }
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void testSave_whenCallersShareABatch() {
+        // skips the codes starting with x, like INSERT IGNORE skips taken rows
+        start(4, 5_000, 16, mappings -> {
+            Set<String> saved = new LinkedHashSet<>(mappings.keySet());
+            saved.removeIf(shortUrl -> shortUrl.startsWith("x"));
+            return saved;
+        });
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (String shortUrl : List.of("a1", "x1", "a2", "x2")) {
+            results.add(saveAsync(shortUrl));
+        }
+
+        assertEquals(List.of(true, false, true, false), results.stream().map(CompletableFuture::join).toList());
+        // one INSERT for all four: the batch filled up before the linger ran out
+        assertEquals(1, batches.size());
+        assertEquals(Set.of("a1", "x1", "a2", "x2"), Set.copyOf(batches.getFirst()));
+    }
+
+    @Test
+    public void testSave_whenBatchFails() {
+        start(3, 5_000, 16, mappings -> {
+            throw new DataAccessResourceFailureException("database is down");
+        });
+
+        List<CompletableFuture<Boolean>> results = List.of(saveAsync("a1"), saveAsync("a2"), saveAsync("a3"));
+
+        for (CompletableFuture<Boolean> result : results) {
+            CompletionException error = assertThrows(CompletionException.class, result::join);
+            assertInstanceOf(DataAccessResourceFailureException.class, error.getCause());
+        }
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testSave_whenQueueIsFull() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        start(1, 0, 1, mappings -> {
+            committing.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return mappings.keySet();
+        });
+
+        // the writer is stuck on a1, a2 fills the queue
+        CompletableFuture<Boolean> first = saveAsync("a1");
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = saveAsync("a2");
+        BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(writer, "queue");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> writer.save("a3", "https://example.com/a3"));
+        assertEquals(503, error.getStatusCode().value());
+
+        resume.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSave_whenStopped() throws InterruptedException {
+        start(4, 0, 16, Map::keySet);
+        writer.stop();
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> writer.save("a1", "https://example.com/a1"));
+        assertEquals(503, error.getStatusCode().value());
+        assertFalse(batches.stream().anyMatch(batch -> batch.contains("a1")));
+    }
+}
@@ -0,0 +1,53 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyFetchingServiceTest {
+
+    private final StandInSnowflakeGenerator generator = new StandInSnowflakeGenerator();
+
+    private KeyFetchingService createService(boolean leaseEnabled) {
+        KeyFetchingService service = new KeyFetchingService(
+                WebClient.builder().exchangeFunction(generator),
+                new PerformanceMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "baseUrl", "http://stand-in");
+        ReflectionTestUtils.setField(service, "timeoutMs", 1000);
+        ReflectionTestUtils.setField(service, "leaseEnabled", leaseEnabled);
+        ReflectionTestUtils.setField(service, "leaseBatchSize", 100);
+        ReflectionTestUtils.setField(service, "leaseLowWaterMark", 25);
+        ReflectionTestUtils.setField(service, "leaseMaxAgeMs", 60_000L);
+        service.initWebClient();
+        return service;
+    }
+
+    @Test
+    public void testGetNextId_withoutLease() {
+        KeyFetchingService service = createService(false);
+        service.getNextId();
+        service.getNextId();
+        assertEquals(2, generator.getNextCalls());
+        assertEquals(0, generator.getBatchCalls());
+    }
+
+    @Test
+    public void testGetNextId_withLease() {
+        KeyFetchingService service = createService(true);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(service.getNextId().getId());
+        }
+        assertEquals(1000, ids.size());
+        assertTrue(generator.getBatchCalls() >= 10);
+        assertTrue(generator.getNextCalls() < 1000);
+    }
+}
@@ -0,0 +1,81 @@
+package com.tinyurl.service;
+
+import com.tinyurl.metrics.PerformanceMetrics;
+import com.tinyurl.utils.Base62Encoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShortUrlFilterTest {
+
+    private static final long TOLERANCE_MS = 60_000;
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+    private final long now = System.currentTimeMillis();
+
+    private ShortUrlFilter createFilter() {
+        ShortUrlFilter filter = new ShortUrlFilter(base62Encoder, new PerformanceMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 1_000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(filter, "idAgeToleranceMs", TOLERANCE_MS);
+        filter.init();
+        return filter;
+    }
+
+    private String codeIssuedAt(long epochMillis, long sequence) {
+        return base62Encoder.encode(((epochMillis - SNOWFLAKE_EPOCH_MS) << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS))
+                | sequence);
+    }
+
+    @Test
+    public void testMightExist_whenNotReady() {
+        ShortUrlFilter filter = createFilter();
+        assertTrue(filter.mightExist(codeIssuedAt(now - 3_600_000, 1)));
+    }
+
+    @Test
+    public void testMightExist_whenIssuedBeforeWatermark() {
+        ShortUrlFilter filter = createFilter();
+        String known = codeIssuedAt(now - 3_600_000, 1);
+        filter.put(known);
+        filter.markReady(now);
+
+        assertTrue(filter.mightExist(known));
+        assertFalse(filter.mightExist(codeIssuedAt(now - 3_600_000, 2)));
+    }
+
+    @Test
+    public void testMightExist_whenIssuedByAnotherNodeAfterWatermark() {
+        ShortUrlFilter filter = createFilter();
+        filter.markReady(now - 3_600_000);
+
+        // not in the filter, but newer than the watermark (minus the tolerance), so it has to be looked up
+        assertTrue(filter.mightExist(codeIssuedAt(now - 3_600_000 - TOLERANCE_MS / 2, 1)));
+        assertTrue(filter.mightExist(codeIssuedAt(now, 1)));
+        // can't have been issued yet
+        assertFalse(filter.mightExist(codeIssuedAt(now + 2 * TOLERANCE_MS, 1)));
+    }
+
+    @Test
+    public void testCheckIdTimestamp_whenGeneratorUsesAnotherEpoch() {
+        ShortUrlFilter filter = createFilter();
+        long twitterEpochMs = 1288834974657L;
+        long id = (now - twitterEpochMs) << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS);
+
+        assertTrue(filter.checkIdTimestamp(base62Encoder.decode(codeIssuedAt(now, 1))));
+        assertFalse(filter.checkIdTimestamp(id));
+
+        ReflectionTestUtils.setField(filter, "epochMs", twitterEpochMs);
+        assertTrue(filter.checkIdTimestamp(id));
+        filter.markReady(now - 3_600_000);
+        // a new code of another node, after the watermark under the generator's epoch
+        assertTrue(filter.mightExist(base62Encoder.encode(id | 1)));
+    }
+}
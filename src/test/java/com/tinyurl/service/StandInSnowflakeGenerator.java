@@ -0,0 +1,73 @@
+package com.tinyurl.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_BATCH_URL;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_EPOCH_MS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NEXT_ID_URL;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_NODE_ID_BITS;
+import static com.tinyurl.ApplicationConstants.SNOWFLAKE_SEQUENCE_BITS;
+
+/**
+ * In-memory stand-in for the Snowflake ID generator service.
+ * Plug it into a WebClient with {@code WebClient.builder().exchangeFunction(...)}.
+ */
+public class StandInSnowflakeGenerator implements ExchangeFunction {
+
+    // ids start at the current time, like real Snowflake ids (leased ids are checked for their age)
+    private final AtomicLong sequence = new AtomicLong(
+            (System.currentTimeMillis() - SNOWFLAKE_EPOCH_MS) << (SNOWFLAKE_NODE_ID_BITS + SNOWFLAKE_SEQUENCE_BITS));
+    private final AtomicInteger nextCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        String path = request.url().getPath();
+        if (SNOWFLAKE_NEXT_ID_URL.equals(path)) {
+            nextCalls.incrementAndGet();
+            return respond(toJson(sequence.incrementAndGet()));
+        }
+        if (SNOWFLAKE_BATCH_URL.equals(path)) {
+            batchCalls.incrementAndGet();
+            String count = UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().getFirst("count");
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < Integer.parseInt(count); i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append(toJson(sequence.incrementAndGet()));
+            }
+            return respond(body.append(']').toString());
+        }
+        return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+    }
+
+    public int getNextCalls() {
+        return nextCalls.get();
+    }
+
+    public int getBatchCalls() {
+        return batchCalls.get();
+    }
+
+    private static String toJson(long id) {
+        return "{\"id\":" + id + ",\"nodeId\":1,\"host\":\"stand-in\"}";
+    }
+
+    private static Mono<ClientResponse> respond(String json) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(json)
+                .build());
+    }
+}
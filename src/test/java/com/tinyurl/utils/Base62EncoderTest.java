@@ -3,7 +3,9 @@ package com.tinyurl.utils;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class Base62EncoderTest {
 
@@ -21,4 +23,46 @@ public class Base62EncoderTest {
         long value = -653436189499457547L;
         assertThrows(IllegalArgumentException.class, () -> base62Encoder.encode(value));
     }
+
+    @Test
+    public void testEncode_withWidth() {
+        Base62Encoder base62Encoder = new Base62Encoder();
+        assertEquals("0000000000z", base62Encoder.encode(61, 11));
+        assertEquals("mGkAYBHPwp", base62Encoder.encode(653436189499457547L, 7));
+        assertEquals("0", base62Encoder.encode(0));
+        assertEquals("AzL8n0Y58m7", base62Encoder.encode(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEncodeTo() {
+        Base62Encoder base62Encoder = new Base62Encoder();
+        byte[] buffer = new byte[16];
+        int length = base62Encoder.encodeTo(653436189499457547L, 0, buffer, 2);
+        assertEquals(10, length);
+        assertEquals("mGkAYBHPwp", new String(buffer, 2, length));
+    }
+
+    @Test
+    public void testDecode() {
+        Base62Encoder base62Encoder = new Base62Encoder();
+        assertEquals(653436189499457547L, base62Encoder.decode("mGkAYBHPwp"));
+        assertEquals(61, base62Encoder.decode("0000000000z"));
+        assertEquals(Long.MAX_VALUE, base62Encoder.decode("AzL8n0Y58m7"));
+        for (long value = 0; value < 100_000; value += 7) {
+            assertEquals(value, base62Encoder.decode(base62Encoder.encode(value)));
+        }
+    }
+
+    @Test
+    public void testDecode_whenInputIsInvalid() {
+        Base62Encoder base62Encoder = new Base62Encoder();
+        assertEquals(Base62Encoder.INVALID, base62Encoder.decode(null));
+        assertEquals(Base62Encoder.INVALID, base62Encoder.decode(""));
+        assertEquals(Base62Encoder.INVALID, base62Encoder.decode("abc-def"));
+        assertEquals(Base62Encoder.INVALID, base62Encoder.decode("abcé"));
+        // Long.MAX_VALUE + 1
+        assertEquals(Base62Encoder.INVALID, base62Encoder.decode("AzL8n0Y58m8"));
+        assertTrue(base62Encoder.isValid("mGkAYBHPwp"));
+        assertFalse(base62Encoder.isValid("favicon.ico"));
+    }
 }
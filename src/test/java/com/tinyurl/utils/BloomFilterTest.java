@@ -0,0 +1,60 @@
+package com.tinyurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+
+    @Test
+    public void testMightContain_noFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (long i = 0; i < 100_000; i++) {
+            filter.put(base62Encoder.encode(i * 7919));
+        }
+        for (long i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain(base62Encoder.encode(i * 7919)));
+        }
+    }
+
+    @Test
+    public void testMightContain_falsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (long i = 0; i < 100_000; i++) {
+            filter.put(base62Encoder.encode(i));
+        }
+        int falsePositives = 0;
+        for (long i = 1_000_000; i < 1_100_000; i++) {
+            if (filter.mightContain(base62Encoder.encode(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.estimatedFalsePositiveRate(), 0.005);
+        assertEquals(100_000, filter.approximateCount(), 2_000);
+    }
+
+    @Test
+    public void testReadFrom_whenWrittenByWriteTo() throws IOException {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+        filter.put("abc");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes), 42L);
+
+        BloomFilter.Snapshot snapshot = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(42L, snapshot.watermark());
+        assertTrue(snapshot.filter().mightContain("abc"));
+        assertFalse(snapshot.filter().mightContain("abd"));
+        assertEquals(filter.estimatedFalsePositiveRate(), snapshot.filter().estimatedFalsePositiveRate());
+    }
+}
@@ -0,0 +1,25 @@
+package com.tinyurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class HashingTest {
+
+    @Test
+    public void testFnv1aMix_whenValuesArePinned() {
+        // shard placement and Redis buckets depend on these values
+        assertEquals(4798939368928090157L, Hashing.fnv1aMix(""));
+        assertEquals(-6161465109656613645L, Hashing.fnv1aMix("aB3xYz"));
+        assertEquals(Hashing.fnv1aMix("aB3xYz"), Hashing.fnv1aMix(new StringBuilder("aB3xYz")));
+        assertEquals(0L, Hashing.mix(0));
+        assertEquals(7981773220472889310L, Hashing.mix(42));
+    }
+
+    @Test
+    public void testFnv1aMix_whenStringHashCodesCollide() {
+        assertEquals("Ab".hashCode(), "BC".hashCode());
+        assertNotEquals(Hashing.fnv1aMix("Ab"), Hashing.fnv1aMix("BC"));
+    }
+}
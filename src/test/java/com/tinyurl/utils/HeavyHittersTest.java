@@ -0,0 +1,48 @@
+package com.tinyurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeavyHittersTest {
+
+    private final Base62Encoder base62Encoder = new Base62Encoder();
+
+    @Test
+    public void testTop_whenTrafficIsSkewed() {
+        HeavyHitters heavyHitters = HeavyHitters.create(10, 1024, 4);
+        // 5 hot codes with 1000 hits each, buried in 50,000 codes with 1 hit
+        for (int round = 0; round < 1000; round++) {
+            for (int hot = 0; hot < 5; hot++) {
+                heavyHitters.add("hot" + hot);
+            }
+            for (int cold = 0; cold < 50; cold++) {
+                heavyHitters.add(base62Encoder.encode(round * 50L + cold));
+            }
+        }
+        List<Map.Entry<String, Long>> top = heavyHitters.top();
+        Set<String> hottest = top.subList(0, 5).stream().map(Map.Entry::getKey).collect(Collectors.toSet());
+        assertEquals(Set.of("hot0", "hot1", "hot2", "hot3", "hot4"), hottest);
+        assertTrue(heavyHitters.estimate("hot0") >= 1000);
+        assertTrue(top.size() <= 10);
+    }
+
+    @Test
+    public void testDecay_halvesEstimates() {
+        HeavyHitters heavyHitters = HeavyHitters.create(10, 1024, 4);
+        for (int i = 0; i < 100; i++) {
+            heavyHitters.add("hot");
+        }
+        heavyHitters.add("once");
+        heavyHitters.decay();
+        assertEquals(50, heavyHitters.estimate("hot"));
+        assertTrue(heavyHitters.isTop("hot"));
+        assertTrue(!heavyHitters.isTop("once"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.tinyurl.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testLoad_whenConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> singleFlight.load("abc", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "https://example.com/" + key;
+                })));
+            }
+            while (singleFlight.coalescedCount() < 99) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("https://example.com/abc", result.get());
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlightCount());
+
+        // nothing is cached once the load is done
+        singleFlight.load("abc", key -> null);
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testLoad_whenLoaderThrows() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class, () -> singleFlight.load("abc", key -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("ok", singleFlight.load("abc", key -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}